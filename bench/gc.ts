@@ -0,0 +1,11 @@
+import v8 from 'v8'
+import vm from 'vm'
+
+v8.setFlagsFromString('--expose-gc')
+const gc: () => void = vm.runInNewContext('gc')
+
+/** Collects garbage so heap deltas only count live objects. */
+export function forceGc() {
+	gc()
+	gc()
+}
@@ -0,0 +1,101 @@
+import { test, expect } from '@playwright/test'
+import http from 'http'
+import { AddressInfo } from 'net'
+import zlib from 'zlib'
+import { streamSitemap } from '../utils/SitemapParser'
+import { forceGc } from './gc'
+
+const URL_COUNT = 50000
+const CHILD_SITEMAPS = 5
+
+function urlset(from: number, to: number): string {
+	const urls: string[] = []
+	for (let i = from; i < to; i++) {
+		urls.push(
+			`<url><loc>https://www.example.com/page/${i}</loc><lastmod>2024-01-01</lastmod>` +
+				`<changefreq>weekly</changefreq><priority>0.5</priority></url>`
+		)
+	}
+	return `<?xml version="1.0" encoding="UTF-8"?>\n<urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">${urls.join('\n')}</urlset>`
+}
+
+async function measure(run: () => Promise<number>) {
+	forceGc()
+	const heapBefore = process.memoryUsage().heapUsed
+	let peakHeap = heapBefore
+	const sampler = setInterval(() => {
+		peakHeap = Math.max(peakHeap, process.memoryUsage().heapUsed)
+	}, 5)
+	const started = performance.now()
+	const count = await run()
+	const ms = performance.now() - started
+	clearInterval(sampler)
+	peakHeap = Math.max(peakHeap, process.memoryUsage().heapUsed)
+	return { count, ms: Math.round(ms), peakHeapMb: +((peakHeap - heapBefore) / 1e6).toFixed(1) }
+}
+
+test.describe('Sitemap parser benchmark', () => {
+	let server: http.Server
+	let origin: string
+
+	test.beforeAll(async () => {
+		const perChild = URL_COUNT / CHILD_SITEMAPS
+		const flat = urlset(0, URL_COUNT)
+		const children = Array.from({ length: CHILD_SITEMAPS }, (_, i) =>
+			zlib.gzipSync(urlset(i * perChild, (i + 1) * perChild))
+		)
+		server = http.createServer((req, res) => {
+			const child = req.url?.match(/^\/sitemap-(\d+)\.xml\.gz$/)
+			if (req.url === '/sitemap.xml') {
+				res.setHeader('content-type', 'application/xml')
+				res.end(flat)
+			} else if (req.url === '/sitemap-index.xml') {
+				res.setHeader('content-type', 'application/xml')
+				res.end(
+					`<sitemapindex>${children
+						.map((_, i) => `<sitemap><loc>${origin}/sitemap-${i}.xml.gz</loc></sitemap>`)
+						.join('')}</sitemapindex>`
+				)
+			} else if (child && children[Number(child[1])]) {
+				res.setHeader('content-type', 'application/gzip')
+				res.end(children[Number(child[1])])
+			} else {
+				res.statusCode = 404
+				res.end()
+			}
+		})
+		await new Promise<void>((resolve) => server.listen(0, '127.0.0.1', resolve))
+		origin = `http://127.0.0.1:${(server.address() as AddressInfo).port}`
+	})
+
+	test.afterAll(async () => {
+		await new Promise((resolve) => server.close(resolve))
+	})
+
+	test(`parses ${URL_COUNT} URLs`, async ({}, testInfo) => {
+		const regex = await measure(async () => {
+			const xml = await (await fetch(`${origin}/sitemap.xml`)).text()
+			return Array.from(xml.matchAll(/<loc>(.*?)<\/loc>/g)).map((m) => m[1]).length
+		})
+		const streaming = await measure(async () => {
+			let count = 0
+			for await (const _ of streamSitemap(`${origin}/sitemap.xml`)) count++
+			return count
+		})
+		const index = await measure(async () => {
+			let count = 0
+			for await (const _ of streamSitemap(`${origin}/sitemap-index.xml`)) count++
+			return count
+		})
+
+		const results = { regex, streaming, gzippedIndex: index }
+		console.table(results)
+		await testInfo.attach('sitemap-parser-benchmark', {
+			body: JSON.stringify(results, null, 2),
+			contentType: 'application/json'
+		})
+		expect(regex.count).toBe(URL_COUNT)
+		expect(streaming.count).toBe(URL_COUNT)
+		expect(index.count).toBe(URL_COUNT)
+	})
+})
@@ -0,0 +1,64 @@
+import { test, expect } from '@playwright/test'
+import { BloomVisitedSet, HashedVisitedSet, VisitedSet } from '../utils/VisitedSet'
+import { forceGc } from './gc'
+
+const SIZES = [10000, 100000, 1000000]
+
+const url = (i: number) => `https://www.netlify.com/blog/${i.toString(36)}/some-article-slug-${i}/`
+
+type Candidate = { name: string; create: (size: number) => VisitedSet }
+
+const candidates: Candidate[] = [
+	{
+		name: 'Set<string>',
+		create: () => {
+			const set = new Set<string>()
+			return { get size() { return set.size }, has: (u) => set.has(u), add: (u) => void set.add(u) }
+		}
+	},
+	{ name: 'hashed', create: () => new HashedVisitedSet() },
+	{ name: 'bloom 1%', create: (size) => new BloomVisitedSet(size, 0.01) },
+	{ name: 'bloom 0.1%', create: (size) => new BloomVisitedSet(size, 0.001) }
+]
+
+test.describe('Visited set benchmark', () => {
+	for (const size of SIZES) {
+		test(`${size} URLs`, async ({}, testInfo) => {
+			test.setTimeout(300000)
+			const rows: Record<string, object> = {}
+			for (const { name, create } of candidates) {
+				forceGc()
+				const heapBefore = process.memoryUsage().heapUsed
+				const set = create(size)
+				const insertStart = performance.now()
+				// URL strings are built on the fly so only the structure itself stays live.
+				for (let i = 0; i < size; i++) set.add(url(i))
+				const insertMs = performance.now() - insertStart
+				forceGc()
+				const heapMb = (process.memoryUsage().heapUsed - heapBefore) / 1e6
+
+				const lookupStart = performance.now()
+				let hits = 0
+				for (let i = 0; i < size; i++) if (set.has(url(i))) hits++
+				const lookupNs = ((performance.now() - lookupStart) * 1e6) / size
+				let falsePositives = 0
+				for (let i = size; i < size * 2; i++) if (set.has(url(i))) falsePositives++
+
+				expect(hits).toBe(size)
+				rows[name] = {
+					heapMb: +heapMb.toFixed(2),
+					bytesPerUrl: +((heapMb * 1e6) / size).toFixed(1),
+					insertMs: Math.round(insertMs),
+					lookupNs: Math.round(lookupNs),
+					falsePositiveRate: +(falsePositives / size).toFixed(4)
+				}
+			}
+			console.log(`\nVisited set, ${size} URLs`)
+			console.table(rows)
+			await testInfo.attach(`visited-set-${size}`, {
+				body: JSON.stringify(rows, null, 2),
+				contentType: 'application/json'
+			})
+		})
+	}
+})
@@ -0,0 +1,106 @@
+import { Browser, Page, test as baseTest } from '@playwright/test'
+import { SitemapPage } from '../pages/SitemapPage'
+import { CRAWL_INCREMENTAL, CrawlState } from '../utils/CrawlState'
+import { PROBE_LOG_ATTACHMENT, probeLog } from '../utils/ProbeLog'
+import { Collectors, attachCollectors, reportCollectors } from '../utils/ContextCollectors'
+import { archiveBrowserTraffic, withStandIn } from '../utils/NetworkMode'
+import { SitemapEntry } from '../utils/SitemapParser'
+import { runSitemap } from '../utils/SitemapStore'
+
+type ApiFixtures = {
+	/**
+	 * Name of a profile in data/resourceProfiles.json whose requests are
+	 * aborted. Unset keeps full-fidelity navigation.
+	 */
+	blockResources: string | undefined
+	/**
+	 * Collects web vitals for every navigation and checks them against
+	 * data/webVitalsBudgets.json. Defaults to on when WEB_VITALS=1.
+	 */
+	webVitals: boolean
+	/** Attaches the latency of every probe issued by the test for the latency reporter. */
+	probeLatency: void
+	/**
+	 * Opens a browser page on first call, for the few checks that need
+	 * rendering, with the same blocking and web vitals as the site fixture's
+	 * `context`. Tests that never call it never launch a browser.
+	 */
+	lazyPage: () => Promise<Page>
+	sitemapPage: SitemapPage
+}
+
+type ApiWorkerFixtures = {
+	/** The sitemap pinned for this run; the same list in every worker. */
+	sitemap: SitemapEntry[]
+	/** Persistent crawl state; undefined unless CRAWL_INCREMENTAL=1. */
+	crawlState: CrawlState | undefined
+	/** Launches the project's browser on first call and closes it with the worker. */
+	lazyBrowser: () => Promise<Browser>
+}
+
+/**
+ * Fixtures for request-only checks. Nothing here depends on `page`,
+ * `context` or `browser`, so tests in the `api` project only launch a
+ * browser when they call `lazyPage`.
+ */
+export const test = baseTest.extend<ApiFixtures, ApiWorkerFixtures>({
+	blockResources: [undefined, { option: true }],
+	webVitals: [process.env.WEB_VITALS === '1', { option: true }],
+	request: async ({ request }, use) => {
+		await use(withStandIn(request))
+	},
+	probeLatency: [
+		async ({}, use, testInfo) => {
+			probeLog.drain()
+			await use()
+			const samples = probeLog.drain()
+			if (samples.length) {
+				await testInfo.attach(PROBE_LOG_ATTACHMENT, {
+					body: JSON.stringify(samples),
+					contentType: 'application/json'
+				})
+			}
+		},
+		{ auto: true }
+	],
+	lazyPage: async ({ lazyBrowser, blockResources, webVitals }, use, testInfo) => {
+		let opened: Promise<{ page: Page; collectors: Collectors }> | undefined
+		const open = async () => {
+			const context = await (await lazyBrowser()).newContext()
+			await archiveBrowserTraffic(context, testInfo)
+			const collectors = await attachCollectors(context, { blockResources, webVitals })
+			return { page: await context.newPage(), collectors }
+		}
+		await use(async () => (await (opened ??= open())).page)
+		if (!opened) return
+		const { page, collectors } = await opened
+		try {
+			await reportCollectors(testInfo, collectors)
+		} finally {
+			await page.context().close()
+		}
+	},
+	sitemapPage: async ({ lazyPage, request, sitemap, crawlState }, use) => {
+		await use(new SitemapPage(lazyPage, request, sitemap, crawlState))
+	},
+	lazyBrowser: [
+		async ({ playwright, browserName, headless, launchOptions }, use) => {
+			let launched: Promise<Browser> | undefined
+			await use(() => (launched ??= playwright[browserName].launch({ ...launchOptions, headless })))
+			if (launched) await (await launched).close()
+		},
+		{ scope: 'worker' }
+	],
+	sitemap: [
+		async ({}, use) => {
+			await use(await runSitemap())
+		},
+		{ scope: 'worker' }
+	],
+	crawlState: [
+		async ({}, use) => {
+			await use(CRAWL_INCREMENTAL ? CrawlState.shared() : undefined)
+		},
+		{ scope: 'worker' }
+	]
+})
@@ -0,0 +1,40 @@
+import fs from 'fs'
+import { CRAWL_INCREMENTAL, CrawlState } from '../utils/CrawlState'
+import { API_HAR_FILE, NETWORK_MODE } from '../utils/NetworkMode'
+import { createRunDir } from '../utils/RunDirectory'
+import { StandInServer } from '../utils/StandInServer'
+import { SITEMAP_CACHE_FILE, SITEMAP_TTL_MS, SITEMAP_URL, loadSitemap, runSitemap } from '../utils/SitemapStore'
+
+/**
+ * Runs once before any worker starts. Failures are only logged here so that
+ * specs which do not need the data still run; fixtures retry and report the
+ * error in the tests that depend on it.
+ *
+ * In record and replay modes this also starts the stand-in server that API
+ * requests are routed through; the returned function stops it after the run.
+ *
+ * Each run gets its own directory for the link status cache, the consent
+ * capture, the pinned sitemap and the results projects share; it is removed
+ * again on teardown.
+ */
+export default async function globalSetup() {
+	let standIn: StandInServer | undefined
+	if (NETWORK_MODE !== 'live') {
+		standIn = new StandInServer(NETWORK_MODE, API_HAR_FILE)
+		process.env.STAND_IN_ORIGIN = await standIn.start()
+	}
+	const runDir = createRunDir()
+	if (CRAWL_INCREMENTAL) new CrawlState().compact()
+	try {
+		// A recording must contain the sitemap fetch, so an earlier snapshot is never reused.
+		await runSitemap(() =>
+			loadSitemap(SITEMAP_URL, SITEMAP_CACHE_FILE, NETWORK_MODE === 'record' ? 0 : SITEMAP_TTL_MS)
+		)
+	} catch (e) {
+		console.warn(`Sitemap prefetch failed: ${e instanceof Error ? e.message : e}`)
+	}
+	return async () => {
+		await standIn?.stop()
+		fs.rmSync(runDir, { recursive: true, force: true })
+	}
+}
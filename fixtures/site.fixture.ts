@@ -1,12 +1,223 @@
-import { test as baseTest } from '@playwright/test'
+import { BrowserContextOptions } from '@playwright/test'
 import { HomePage } from '../pages/HomePage'
+import { test as apiTest } from './api.fixture'
+import { BrokenResourceMonitor } from '../utils/BrokenResourceMonitor'
+import { ensureConsentState } from '../utils/ConsentState'
+import { attachCollectors, reportCollectors } from '../utils/ContextCollectors'
+import { HUBSPOT_MODE, HubSpotMode, MockRegistry } from '../utils/HubSpotMocks'
+import { NETWORK_MODE, archiveBrowserTraffic } from '../utils/NetworkMode'
+import { HOME_PAGE_POOL_MAX_USES, HOME_PAGE_POOL_SIZE, PagePool } from '../utils/PagePool'
+import { WebVitalsCollector } from '../utils/WebVitals'
 
 type CustomFixtures = {
+	/**
+	 * Fails the test with every subresource that answered 4xx/5xx or failed
+	 * during its navigations, read from the browser's own traffic. Needs a
+	 * `blockResources` profile that keeps subresources, such as `third-party`.
+	 */
+	detectBrokenResources: boolean
+	/** `mock` answers the HubSpot form endpoints locally; `live` sends them to HubSpot. */
+	hubspot: HubSpotMode
+	hubspotMocks: MockRegistry
 	homePage: HomePage
+	/**
+	 * A homepage tab borrowed from the worker's pool: already navigated, with
+	 * consent given and the newsletter form visible. Tests that block
+	 * resources, override `storageState`, or run as a retry get a fresh page
+	 * from `context` instead, as do all tests while `video` is not `off`.
+	 */
+	pooledHomePage: HomePage
 }
 
-export const test = baseTest.extend<CustomFixtures>({
-	homePage: async ({ page }, use) => {
-		await use(new HomePage(page))
+type WorkerFixtures = {
+	/**
+	 * storageState file with the cookie banner already answered. Captured on
+	 * first use, so request-only runs never launch a browser for it.
+	 */
+	consentState: string | undefined
+	/** Pre-warmed homepage tabs per worker; 0 disables the pool. */
+	homePagePoolSize: number
+	/**
+	 * Undefined when the pool is disabled, traffic is recorded or replayed,
+	 * or `video` is not `off`: a video covers a page's whole life, so a
+	 * pooled tab cannot record one per test.
+	 */
+	homePagePool: PagePool<PooledTab> | undefined
+}
+
+/** A pooled homepage with the collectors its context was created with, cleared on every return. */
+type PooledTab = {
+	homePage: HomePage
+	vitals: WebVitalsCollector
+	monitor: BrokenResourceMonitor
+}
+
+/**
+ * Project `use` keys that configure the test runner or this fixture file
+ * rather than a browser context. Every other key is passed on to pooled
+ * contexts, as the `context` fixture would.
+ */
+const NON_CONTEXT_KEYS = [
+	'browserName',
+	'defaultBrowserType',
+	'headless',
+	'channel',
+	'launchOptions',
+	'connectOptions',
+	'contextOptions',
+	'screenshot',
+	'trace',
+	'video',
+	'testIdAttribute',
+	'actionTimeout',
+	'navigationTimeout',
+	'storageState',
+	'blockResources',
+	'webVitals',
+	'detectBrokenResources',
+	'hubspot',
+	'homePagePoolSize'
+]
+
+/** Context options for pooled contexts, built from the project's `use` block. */
+function pooledContextOptions(projectUse: Record<string, unknown>): BrowserContextOptions {
+	const options: Record<string, unknown> = { ...(projectUse.contextOptions as BrowserContextOptions) }
+	for (const [key, value] of Object.entries(projectUse)) {
+		if (value !== undefined && !NON_CONTEXT_KEYS.includes(key)) options[key] = value
 	}
+	return options
+}
+
+function artifactMode(option: string | { mode: string }): string {
+	return typeof option === 'string' ? option : option.mode
+}
+
+/** Browser fixtures, layered over the request-only ones in api.fixture. */
+export const test = apiTest.extend<CustomFixtures, WorkerFixtures>({
+	detectBrokenResources: [false, { option: true }],
+	hubspot: [HUBSPOT_MODE, { option: true }],
+	storageState: async ({ storageState, consentState }, use) => {
+		await use(storageState ?? consentState)
+	},
+	context: async ({ context, blockResources, webVitals, detectBrokenResources }, use, testInfo) => {
+		// Registered first so the resource blocker still sees requests before the archive.
+		await archiveBrowserTraffic(context, testInfo)
+		const collectors = await attachCollectors(context, { blockResources, webVitals, detectBrokenResources })
+
+		await use(context)
+
+		await reportCollectors(testInfo, collectors)
+	},
+	hubspotMocks: async ({ hubspot }, use, testInfo) => {
+		const mocks = new MockRegistry(hubspot)
+		await use(mocks)
+		testInfo.annotations.push({
+			type: 'hubspot',
+			description: hubspot === 'live' ? 'live' : `mocked, ${mocks.calls.length} calls`
+		})
+	},
+	homePage: async ({ page, hubspotMocks }, use) => {
+		// Routed before the test navigates so the form never reaches HubSpot in mock mode.
+		await hubspotMocks.attach(page)
+		await use(new HomePage(page))
+	},
+	pooledHomePage: async (
+		{
+			homePagePool,
+			context,
+			hubspotMocks,
+			storageState,
+			consentState,
+			blockResources,
+			webVitals,
+			detectBrokenResources,
+			screenshot
+		},
+		use,
+		testInfo
+	) => {
+		// A pooled tab loaded before the test could shape its traffic.
+		const fresh =
+			!homePagePool || blockResources !== undefined || storageState !== consentState || testInfo.retry > 0
+		if (fresh) {
+			const homePage = new HomePage(await context.newPage())
+			await hubspotMocks.attach(homePage.page)
+			await homePage.goto()
+			await use(homePage)
+			return
+		}
+		const tab = await homePagePool.acquire()
+		const { homePage } = tab
+		await hubspotMocks.attach(homePage.page)
+		try {
+			await use(homePage)
+			await reportCollectors(testInfo, {
+				vitals: webVitals ? tab.vitals : undefined,
+				monitor: detectBrokenResources ? tab.monitor : undefined
+			})
+		} finally {
+			const failed = testInfo.status !== testInfo.expectedStatus
+			const screenshotMode = artifactMode(screenshot)
+			if (!homePage.page.isClosed()) {
+				if (screenshotMode === 'on' || (failed && screenshotMode === 'only-on-failure')) {
+					await testInfo.attach('screenshot', {
+						body: await homePage.page.screenshot(),
+						contentType: 'image/png'
+					})
+				}
+				await hubspotMocks.detach(homePage.page)
+			}
+			await homePagePool.release(tab)
+		}
+	},
+	consentState: [
+		async ({ browser }, use) => {
+			await use(await ensureConsentState(browser))
+		},
+		{ scope: 'worker', timeout: 90000 }
+	],
+	homePagePoolSize: [HOME_PAGE_POOL_SIZE, { option: true, scope: 'worker' }],
+	homePagePool: [
+		async ({ browser, homePagePoolSize, consentState, video }, use, workerInfo) => {
+			// Pooled contexts outlive a test, so they cannot use its HAR archive or record its video.
+			if (homePagePoolSize < 1 || NETWORK_MODE !== 'live' || artifactMode(video) !== 'off') {
+				await use(undefined)
+				return
+			}
+			const contextOptions = pooledContextOptions(workerInfo.project.use as Record<string, unknown>)
+			const pool = new PagePool<PooledTab>({
+				size: homePagePoolSize,
+				maxUses: HOME_PAGE_POOL_MAX_USES,
+				create: async () => {
+					const context = await browser.newContext({ ...contextOptions, storageState: consentState })
+					try {
+						// Collected for every tab; borrowers that opted in report them.
+						const vitals = new WebVitalsCollector()
+						await vitals.attach(context)
+						const monitor = new BrokenResourceMonitor()
+						monitor.attach(context)
+						const homePage = new HomePage(await context.newPage())
+						await homePage.goto()
+						await homePage.isFormVisible()
+						return { homePage, vitals, monitor }
+					} catch (e) {
+						await context.close()
+						throw e
+					}
+				},
+				reset: async ({ homePage, vitals, monitor }) => {
+					// Cleared before the reload, so the next borrower sees the navigation of its own document.
+					vitals.clear()
+					monitor.clear()
+					await homePage.reset()
+				},
+				healthy: ({ homePage }) => homePage.isHealthy(),
+				destroy: ({ homePage }) => homePage.page.context().close()
+			})
+			await pool.warm()
+			await use(pool)
+			await pool.close()
+		},
+		{ scope: 'worker', timeout: 120000 }
+	]
 })
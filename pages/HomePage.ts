@@ -1,25 +1,31 @@
 import { Page, Locator, expect } from '@playwright/test';
+import { hasConsentCookie } from '../utils/ConsentState';
 
 export class HomePage {
   readonly page: Page;
+  readonly url: string;
   readonly rejectCookies: Locator;
   readonly newsletterForm: Locator;
   readonly emailInput: Locator;
   readonly subscribeButton: Locator;
   readonly feedbackMsg: Locator;
+  readonly emailError: Locator;
   readonly thanksForSub: Locator;
   readonly viewOurDocumentationButton: Locator;
   readonly ChatInOurCommunityButton: Locator;
   readonly lookingForward: Locator;
   readonly emailCheckEndpoint: string;
+  private bannerHandlerAdded = false;
 
   constructor(page: Page) {
     this.page = page;
+    this.url = 'https://www.netlify.com/';
     this.rejectCookies = page.locator('button[id="onetrust-reject-all-handler"]');
     this.newsletterForm = page.locator('section[class="newsletter-form | l-stack l-stack-small l-center"]');
     this.emailInput = this.newsletterForm.locator('input[type="email"]');
     this.subscribeButton = this.newsletterForm.locator('input[type="submit"]');
     this.feedbackMsg = this.newsletterForm.locator('[aria-live], .feedback, .error, .success');
+    this.emailError = this.newsletterForm.locator('.hs-error-msgs');
     this.thanksForSub = page.getByRole('heading', { name: 'Thank you for signing up!' });
     this.viewOurDocumentationButton = page.getByRole('link', { name: 'View our documentation' });
     this.ChatInOurCommunityButton = page.getByRole('link', { name: 'Chat in our Community' });
@@ -27,12 +33,64 @@ export class HomePage {
     this.emailCheckEndpoint = 'https://forms.hsforms.com/emailcheck/v1/json-ext?hs_static_app=forms-embed&hs_static_app_version=1.8323&X-HubSpot-Static-App-Info=forms-embed-1.8323&portalId=7477936&formId=52611e5e-cc55-4960-bf4a-a2adb36291f6&includeFreemailSuggestions=true';
   }
 
+  /**
+   * Opens the homepage. Contexts started from the saved consent state skip the
+   * OneTrust banner; a locator handler still dismisses it if OneTrust decides
+   * the saved consent is stale and shows it again.
+   */
   async goto() {
-    await this.page.goto('https://www.netlify.com/');
+    await this.page.goto(this.url);
+    if (await hasConsentCookie(this.page.context())) {
+      if (!this.bannerHandlerAdded) {
+        await this.page.addLocatorHandler(this.rejectCookies, async () => {
+          await this.rejectCookies.click();
+        });
+        this.bannerHandlerAdded = true;
+      }
+      return;
+    }
     await expect(this.rejectCookies).toBeVisible();
     await this.rejectCookies.click();
   }
 
+  /**
+   * Returns a pooled tab to the state it was borrowed in: web storage is
+   * cleared, every cookie except OneTrust's consent cookies is removed, and
+   * the homepage is reloaded so no validation message or HubSpot form state
+   * from the previous test survives.
+   */
+  async reset() {
+    await this.page.evaluate(() => {
+      localStorage.clear();
+      sessionStorage.clear();
+    });
+    const context = this.page.context();
+    const consent = (await context.cookies()).filter(cookie => cookie.name.startsWith('Optanon'));
+    await context.clearCookies();
+    await context.addCookies(consent);
+    await this.page.goto(this.url);
+    await this.isFormVisible();
+  }
+
+  /**
+   * Whether the tab is still on the homepage with consent given, no banner,
+   * and an empty, visible newsletter form without a validation message.
+   */
+  async isHealthy(): Promise<boolean> {
+    if (this.page.isClosed() || this.page.url() !== this.url) return false;
+    try {
+      return (
+        (await hasConsentCookie(this.page.context())) &&
+        !(await this.rejectCookies.isVisible()) &&
+        (await this.newsletterForm.isVisible()) &&
+        !(await this.emailError.isVisible()) &&
+        (await this.emailInput.inputValue({ timeout: 1000 })) === ''
+      );
+    } catch {
+      return false;
+    }
+  }
+
   async isFormVisible() {
     await expect(this.newsletterForm).toBeVisible();
   }
@@ -68,6 +126,26 @@ export class HomePage {
     return await response.json();
   }
 
+  /**
+   * Replaces the email in the form and returns the emailcheck response for
+   * that address. Matching on the posted address keeps a late answer for the
+   * previous value from being taken for this one, so one page can check many
+   * addresses in a row.
+   */
+  async checkEmail(email: string) {
+    const posted = (body: string | null) =>
+      !!body && (body.includes(email) || body.includes(encodeURIComponent(email)));
+    const [response] = await Promise.all([
+      this.page.waitForResponse(resp =>
+        resp.url().includes('/emailcheck/v1/json-ext') &&
+        resp.request().method() === 'POST' &&
+        posted(resp.request().postData())
+      ),
+      this.fillSubscriptionEmail(email)
+    ]);
+    return await response.json();
+  }
+
   async assertInvalidEmailResponse(responseBody: any, email: string) {
     expect(responseBody).toMatchObject({
 			success: false,
@@ -1,36 +1,78 @@
-import { Page, APIRequestContext, expect } from '@playwright/test';
+import { Page, APIRequestContext } from '@playwright/test';
+import { probeUrl } from '../utils/UrlProbe';
+import { SitemapEntry, streamSitemap } from '../utils/SitemapParser';
+import { SITEMAP_URL } from '../utils/SitemapStore';
+import { RobotsEvaluator, RobotsVerdict } from '../utils/RobotsEvaluator';
+import { CrawlState } from '../utils/CrawlState';
 
 /**
  * SitemapPage
  * Utility for interacting with the Netlify sitemap and verifying crawlability.
  */
 export class SitemapPage {
-  readonly page: Page;
+  /** Opens a browser page on first call, so request-only checks never launch a browser. */
+  readonly page: () => Promise<Page>;
   readonly request: APIRequestContext;
-  sitemapUrl: string = 'https://www.netlify.com/sitemap.xml';
+  readonly sitemap?: SitemapEntry[];
+  readonly robots: RobotsEvaluator;
+  sitemapUrl: string = SITEMAP_URL;
 
-  constructor(page: Page, request: APIRequestContext) {
+  /**
+   * @param sitemap Entries already loaded by the `sitemap` fixture. When
+   * omitted, the sitemap is streamed from `sitemapUrl` on demand.
+   * @param crawlState Previous runs' results, for incremental crawling.
+   */
+  constructor(page: () => Promise<Page>, request: APIRequestContext, sitemap?: SitemapEntry[], crawlState?: CrawlState) {
     this.page = page;
     this.request = request;
+    this.sitemap = sitemap;
+    this.robots = new RobotsEvaluator(request, page, { crawlState });
+  }
+
+  /**
+   * Yields sitemap entries, following sitemap index children.
+   * Throws if any sitemap does not return a 2xx status.
+   */
+  async *entries(): AsyncGenerator<SitemapEntry> {
+    if (this.sitemap) {
+      yield* this.sitemap;
+      return;
+    }
+    yield* streamSitemap(this.sitemapUrl);
   }
 
   /**
    * Fetches and parses the sitemap, returning an array of URLs.
    */
   async getSitemapUrls(): Promise<string[]> {
-    const resp = await this.request.get(this.sitemapUrl);
-    expect(resp.status()).toBe(200);
-    const xml = await resp.text();
-    const urls = Array.from(xml.matchAll(/<loc>(.*?)<\/loc>/g)).map(m => m[1]);
+    const urls: string[] = [];
+    for await (const entry of this.entries()) urls.push(entry.loc);
     return urls;
   }
 
+  /**
+   * Reads status and noindex directives from one HTTP response, navigating
+   * the browser only for client-rendered URLs.
+   */
+  async evaluateRobots(url: string): Promise<RobotsVerdict> {
+    return this.robots.evaluate(url);
+  }
+
+  /**
+   * Same as evaluateRobots, but reuses the previous verdict when the entry's
+   * `<lastmod>` has not changed since a recent check.
+   */
+  async evaluateEntry(entry: SitemapEntry): Promise<RobotsVerdict> {
+    return this.robots.evaluateEntry(entry);
+  }
+
   /**
    * Checks if the given page has a robots meta tag with noindex.
    */
   async hasNoindexMeta(url: string): Promise<boolean> {
-    await this.page.goto(url, { waitUntil: 'domcontentloaded' });
-    const robots = await this.page.$('meta[name="robots"]');
+    const page = await this.page();
+    await page.goto(url, { waitUntil: 'domcontentloaded' });
+    const robots = await page.$('meta[name="robots"]');
     if (!robots) return false;
     const content = await robots.getAttribute('content');
     return content?.includes('noindex') ?? false;
@@ -38,9 +80,10 @@ export class SitemapPage {
 
   /**
    * Checks if the given URL is accessible (status < 400).
+   * Uses a HEAD-first probe so large bodies are not downloaded.
    */
   async isUrlAccessible(url: string): Promise<boolean> {
-    const resp = await this.request.get(url);
-    return resp.status() < 400;
+    const { status } = await probeUrl(this.request, url);
+    return status < 400;
   }
 }
\ No newline at end of file
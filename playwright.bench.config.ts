@@ -0,0 +1,13 @@
+import { defineConfig } from '@playwright/test';
+
+/**
+ * Micro-benchmarks for the utilities in utils/. They run against local
+ * synthetic data only and never launch a browser.
+ */
+export default defineConfig({
+  testDir: './bench',
+  testMatch: '*.bench.ts',
+  timeout: 120000,
+  workers: 1,
+  reporter: [['list']]
+});
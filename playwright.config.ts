@@ -1,7 +1,15 @@
 import { defineConfig, devices } from '@playwright/test';
 
+// `--shard` splits tests in declaration order, so longest-first ordering would put
+// every slow test on the first shard. Set before workers start so they inherit it.
+if (process.argv.some((arg) => arg.startsWith('--shard'))) process.env.ORDER_BY_TIMINGS = '0';
+
+// Request-only specs; they run once in the `api` project and only launch a browser on demand (`lazyPage`).
+const API_SPECS = /.*\.api\.spec\.ts/;
+
 export default defineConfig({
   testDir: './tests',
+  globalSetup: require.resolve('./fixtures/global-setup'),
   timeout: 30000,
   retries: 1,
   use: {
@@ -14,15 +22,23 @@ export default defineConfig({
   },
   reporter: [
     ['list'],
-    ['html', { open: 'never' }]
+    ['html', { open: 'never' }],
+    ['./reporters/latency-reporter.ts'],
+    ['./reporters/timing-reporter.ts']
   ],
   projects: [
+    {
+      name: 'api',
+      testMatch: API_SPECS,
+    },
     {
       name: 'chromium',
+      testIgnore: API_SPECS,
       use: { ...devices['Desktop Chrome'] },
     },
     {
       name: 'firefox',
+      testIgnore: API_SPECS,
       use: { ...devices['Desktop Firefox'] },
     }
   ]
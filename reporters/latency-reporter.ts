@@ -0,0 +1,91 @@
+import fs from 'fs'
+import path from 'path'
+import type { FullConfig, Reporter, TestCase, TestResult } from '@playwright/test/reporter'
+import { LatencyHistogram } from '../utils/LatencyHistogram'
+import { PROBE_LOG_ATTACHMENT, ProbeSample } from '../utils/ProbeLog'
+
+type HostStats = {
+	histogram: LatencyHistogram
+	outcomes: Record<string, number>
+	first: number
+	last: number
+}
+
+type LatencyReporterOptions = {
+	/** Where the JSON summary is written, relative to the config directory. */
+	outputFile?: string
+}
+
+/**
+ * LatencyReporter
+ * Aggregates the probe latency samples attached by the `probeLatency` fixture
+ * in fixtures/api.fixture.ts into per-host histograms, throughput and outcome
+ * counts. Writes a compact JSON file and prints a summary table at the end of
+ * the run.
+ */
+export default class LatencyReporter implements Reporter {
+	private readonly hosts = new Map<string, HostStats>()
+	private readonly options: LatencyReporterOptions
+	private outputFile = ''
+
+	constructor(options: LatencyReporterOptions = {}) {
+		this.options = options
+	}
+
+	printsToStdio() {
+		return false
+	}
+
+	onBegin(config: FullConfig) {
+		this.outputFile = path.resolve(
+			path.dirname(config.configFile ?? '.'),
+			this.options.outputFile ?? 'test-results/probe-latency.json'
+		)
+	}
+
+	onTestEnd(_test: TestCase, result: TestResult) {
+		for (const attachment of result.attachments) {
+			if (attachment.name !== PROBE_LOG_ATTACHMENT || !attachment.body) continue
+			for (const sample of JSON.parse(attachment.body.toString('utf8')) as ProbeSample[]) {
+				let stats = this.hosts.get(sample.host)
+				if (!stats) {
+					stats = { histogram: new LatencyHistogram(), outcomes: {}, first: sample.at - sample.ms, last: sample.at }
+					this.hosts.set(sample.host, stats)
+				}
+				stats.histogram.record(sample.ms)
+				stats.outcomes[sample.outcome] = (stats.outcomes[sample.outcome] ?? 0) + 1
+				stats.first = Math.min(stats.first, sample.at - sample.ms)
+				stats.last = Math.max(stats.last, sample.at)
+			}
+		}
+	}
+
+	onEnd() {
+		if (!this.hosts.size) return
+		const summary = [...this.hosts]
+			.sort(([a], [b]) => a.localeCompare(b))
+			.map(([host, { histogram, outcomes, first, last }]) => ({
+				host,
+				requests: histogram.count,
+				p50: histogram.percentile(50),
+				p95: histogram.percentile(95),
+				p99: histogram.percentile(99),
+				max: histogram.max,
+				rps: Math.round((histogram.count / Math.max((last - first) / 1000, 0.001)) * 10) / 10,
+				outcomes
+			}))
+		fs.mkdirSync(path.dirname(this.outputFile), { recursive: true })
+		fs.writeFileSync(this.outputFile, JSON.stringify(summary, null, 1))
+
+		console.log('\nProbe latency (ms)')
+		console.table(
+			Object.fromEntries(
+				summary.map(({ host, outcomes, ...row }) => [
+					host,
+					{ ...row, outcomes: Object.entries(outcomes).map(([name, count]) => `${name}:${count}`).join(' ') }
+				])
+			)
+		)
+		console.log(`Written to ${path.relative(process.cwd(), this.outputFile)}`)
+	}
+}
@@ -0,0 +1,50 @@
+import type { Reporter, TestCase, TestResult } from '@playwright/test/reporter'
+import { TEST_TIMINGS_FILE, TestTimings, loadTimings, saveTimings, timingKey } from '../utils/TestTimings'
+
+type TimingReporterOptions = {
+	/** Weight of the newest run against the stored duration, from 0 to 1. */
+	smoothing?: number
+}
+
+/**
+ * TimingReporter
+ * Records how long each test took per project and merges it into the
+ * timing store that longest-first ordering reads on the next run. Durations
+ * are smoothed so one slow run does not reshuffle the order.
+ */
+export default class TimingReporter implements Reporter {
+	private readonly observed: TestTimings = {}
+	private readonly smoothing: number
+
+	constructor(options: TimingReporterOptions = {}) {
+		this.smoothing = options.smoothing ?? 0.5
+	}
+
+	printsToStdio() {
+		return false
+	}
+
+	onTestEnd(test: TestCase, result: TestResult) {
+		// Skipped and interrupted tests say nothing about their usual cost.
+		if (result.status !== 'passed' && result.status !== 'failed') return
+		const project = test.parent.project()?.name ?? ''
+		// titlePath() is [root, project, file, ...describes, title].
+		const key = timingKey(test.location.file, ...test.titlePath().slice(3))
+		const projects = (this.observed[key] ??= {})
+		projects[project] = result.duration
+	}
+
+	onEnd() {
+		if (!Object.keys(this.observed).length) return
+		// Re-read so concurrent CI shards lose as little of each other's data as possible.
+		const timings = loadTimings(TEST_TIMINGS_FILE)
+		for (const [key, projects] of Object.entries(this.observed)) {
+			const stored = (timings[key] ??= {})
+			for (const [project, ms] of Object.entries(projects)) {
+				const previous = stored[project]
+				stored[project] = Math.round(previous === undefined ? ms : previous + (ms - previous) * this.smoothing)
+			}
+		}
+		saveTimings(timings, TEST_TIMINGS_FILE)
+	}
+}
@@ -0,0 +1,112 @@
+import { test, expect } from '@playwright/test'
+import http from 'http'
+import { AddressInfo } from 'net'
+import { HostScheduler } from '../utils/HostScheduler'
+import { mapWithConcurrency } from '../utils/LinkChecker'
+import { probeLog } from '../utils/ProbeLog'
+import { RetryPolicy } from '../utils/RetryPolicy'
+import { probeUrl } from '../utils/UrlProbe'
+
+type StandIn = {
+	origin: string
+	arrivals: number[]
+	rejections: number[]
+	maxInFlight: number
+	close: () => Promise<void>
+}
+
+/** Local stand-in for a rate-limited origin: answers 429 above `capacity` requests in flight. */
+async function startStandIn(capacity: number, delayMs: number): Promise<StandIn> {
+	let inFlight = 0
+	const server = http.createServer((req, res) => {
+		standIn.arrivals.push(Date.now())
+		if (inFlight >= capacity) {
+			standIn.rejections.push(Date.now())
+			res.writeHead(429, { 'Retry-After': '1' })
+			res.end()
+			return
+		}
+		inFlight++
+		standIn.maxInFlight = Math.max(standIn.maxInFlight, inFlight)
+		setTimeout(() => {
+			inFlight--
+			res.end('ok')
+		}, delayMs)
+	})
+	const standIn: StandIn = {
+		origin: '',
+		arrivals: [],
+		rejections: [],
+		maxInFlight: 0,
+		close: () => new Promise<void>((resolve) => server.close(() => resolve()))
+	}
+	await new Promise<void>((resolve) => server.listen(0, '127.0.0.1', resolve))
+	standIn.origin = `http://127.0.0.1:${(server.address() as AddressInfo).port}`
+	return standIn
+}
+
+test.describe('Adaptive per-host scheduler', () => {
+	test('grows concurrency while the host stays healthy', async ({ request }) => {
+		const standIn = await startStandIn(1000, 30)
+		const scheduler = new HostScheduler({ initial: 2, max: 16 })
+		const urls = Array.from({ length: 200 }, (_, i) => `${standIn.origin}/page/${i}`)
+		// Own retry policy, so this spec never spends the worker's shared retry budget.
+		const retry = new RetryPolicy()
+		const results = await mapWithConcurrency(urls, 64, (url) => probeUrl(request, url, { scheduler, retry }))
+		await standIn.close()
+
+		expect(results.every((result) => result.status === 200)).toBe(true)
+		expect(scheduler.limits()[standIn.origin]).toBeGreaterThan(2)
+		expect(standIn.maxInFlight).toBeGreaterThan(2)
+		expect(standIn.maxInFlight).toBeLessThanOrEqual(16)
+	})
+
+	test('halves concurrency on 429 and waits for Retry-After', async ({ request }) => {
+		const standIn = await startStandIn(3, 50)
+		const scheduler = new HostScheduler({ initial: 8, max: 8 })
+		const urls = Array.from({ length: 40 }, (_, i) => `${standIn.origin}/page/${i}`)
+		const retry = new RetryPolicy()
+		await mapWithConcurrency(urls, 64, (url) => probeUrl(request, url, { scheduler, retry }))
+		await standIn.close()
+
+		expect(standIn.rejections.length).toBeGreaterThan(0)
+		expect(scheduler.limits()[standIn.origin]).toBeLessThan(8)
+		const firstRejection = standIn.rejections[0]
+		const duringPause = standIn.arrivals.filter(
+			(at) => at > firstRejection + 100 && at < firstRejection + 900
+		)
+		expect(duringPause).toEqual([])
+	})
+
+	test('halves concurrency on timeouts', async () => {
+		const scheduler = new HostScheduler({ initial: 8 })
+		const url = 'http://127.0.0.1/timeout'
+		await expect(
+			scheduler.run(url, () => Promise.reject(new Error('Timeout 50ms exceeded')), () => ({}))
+		).rejects.toThrow('Timeout')
+		expect(scheduler.limits()['http://127.0.0.1']).toBe(4)
+	})
+
+	test('halves concurrency when a real request times out', async ({ request }) => {
+		const standIn = await startStandIn(1000, 2000)
+		const scheduler = new HostScheduler({ initial: 8 })
+		const url = `${standIn.origin}/slow`
+		probeLog.drain()
+		const slow = () =>
+			probeLog.time(url, () => request.get(url, { timeout: 100 }), (response) => response.status())
+		await expect(scheduler.run(url, slow, (response) => ({ status: response.status() }))).rejects.toThrow()
+		await standIn.close()
+
+		expect(scheduler.limits()[standIn.origin]).toBe(4)
+		expect(probeLog.drain().map((sample) => sample.outcome)).toEqual(['timeout'])
+	})
+
+	test('halves concurrency on 504 and does not grow on other 5xx', async () => {
+		const scheduler = new HostScheduler({ initial: 8 })
+		const url = 'http://127.0.0.1/gateway'
+		await scheduler.run(url, async () => 504, (status) => ({ status }))
+		expect(scheduler.limits()['http://127.0.0.1']).toBe(4)
+		for (let i = 0; i < 20; i++) await scheduler.run(url, async () => 500, (status) => ({ status }))
+		expect(scheduler.limits()['http://127.0.0.1']).toBe(4)
+	})
+})
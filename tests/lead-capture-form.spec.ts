@@ -1,26 +1,54 @@
+import { expect } from '@playwright/test'
 import { test } from '../fixtures/site.fixture'
 
+type EmailCase = {
+	email: string
+	/** Fields the emailcheck response must contain; `success` also decides whether the form shows an error. */
+	expected: { success: boolean } & Record<string, unknown>
+}
+
 test.describe('Lead Capture Newsletter Form', () => {
 	const testData = JSON.parse(JSON.stringify(require('../data/email.json')))
 
+	// Tabs come from the worker's pool already on the homepage with consent given.
 	test('should be present and function with valid data', async ({
-		homePage
+		pooledHomePage: homePage
 	}) => {
-		await homePage.goto()
 		await homePage.isFormVisible()
 		await homePage.fillSubscriptionEmail(testData.email)
 		await homePage.subscribeToNewsletter()
 		await homePage.subscriptionConfirmed()
 	})
 
-	test('should validate and reject invalid email', async ({ homePage }) => {
-		await homePage.goto()
+	test('should validate and reject invalid email', async ({ pooledHomePage: homePage, hubspot }) => {
 		await homePage.isFormVisible()
 		const invalidEmailResponseBody = await homePage.waitForEmailValidationResponse(
 			homePage.emailCheckEndpoint,
 			testData.invalidEmail,
 			'POST'
 		)
-		await homePage.assertInvalidEmailResponse(invalidEmailResponseBody, testData.invalidEmail)
+		// The mock builds exactly this body, so it is only worth checking against HubSpot itself.
+		if (hubspot === 'live') {
+			await homePage.assertInvalidEmailResponse(invalidEmailResponseBody, testData.invalidEmail)
+		}
+		await expect(homePage.emailError).toBeVisible()
+	})
+
+	test('should validate every email case in one page session', async ({ pooledHomePage: homePage, hubspot }) => {
+		const cases: EmailCase[] = testData.cases
+		test.setTimeout(30000 + cases.length * 2000)
+		await homePage.isFormVisible()
+		for (const { email, expected } of cases) {
+			const body = await homePage.checkEmail(email)
+			// Mocked answers are canned, so only HubSpot's own are worth comparing field by field.
+			if (hubspot === 'live') {
+				expect.soft(body, `Email: ${email}`).toMatchObject({ email, ...expected })
+			}
+			if (expected.success) {
+				await expect.soft(homePage.emailError, `Email: ${email}`).toBeHidden()
+			} else {
+				await expect.soft(homePage.emailError, `Email: ${email}`).toBeVisible()
+			}
+		}
 	})
 })
@@ -1,23 +1,73 @@
-import { test, expect } from '@playwright/test'
+import { expect } from '@playwright/test'
+import { test } from '../fixtures/site.fixture'
 import { PageUtils } from '../utils/PageUtils'
+import { HostScheduler } from '../utils/HostScheduler'
+import { SharedResults } from '../utils/SharedResults'
+import { StatusCache } from '../utils/StatusCache'
+import { longestFirst, timingKey } from '../utils/TestTimings'
 
-test.describe('404 Link Verification', () => {
-	const checkedPages = JSON.parse(
+const SUITE = '404 Link Verification'
+const title = (pageUrl: string) => `All links on ${pageUrl} do not lead to 404`
+
+test.describe(SUITE, () => {
+	// Pages are independent; parallel mode lets idle workers pick up the next one.
+	test.describe.configure({ mode: 'parallel' })
+	// Subresources load so broken ones can be reported; only third-party hosts are blocked.
+	test.use({ blockResources: 'third-party', detectBrokenResources: true })
+
+	const checkedPages: string[] = JSON.parse(
 		JSON.stringify(require('../data/checkedPages.json'))
 	)
+	const pages = new Map(checkedPages.map((pageUrl) => [timingKey(__filename, SUITE, title(pageUrl)), pageUrl]))
 
-	for (const pageUrl of checkedPages) {
-		test(`All links on ${pageUrl} do not lead to 404`, async ({
+	// Longest pages first from recorded timings, except in `--shard` runs.
+	for (const key of longestFirst([...pages.keys()])) {
+		const pageUrl = pages.get(key)!
+		test(title(pageUrl), async ({
 			page,
-			request
-		}) => {
+			request,
+			crawlState
+		}, testInfo) => {
 			await page.goto(pageUrl)
 			const links = (await PageUtils.getAllLinks(page)).filter((url) =>
 				url.startsWith('https://www.netlify.com/')
 			)
-			for (const link of links) {
-				const resp = await request.get(link)
-				expect(resp.status(), `Broken link: ${link}`).not.toBe(404)
+			const check = (urls: string[]) =>
+				PageUtils.checkLinks(request, urls, {
+					cache: StatusCache.shared(),
+					crawlState
+				})
+			// Probes do not depend on the browser, so only the first project sends them.
+			const shared = await SharedResults.shared().once(testInfo, 'link-results', () => check(links))
+			// The other browser may have found a slightly different set of links.
+			const known = new Set(shared.value.map((result) => result.url))
+			const results = [
+				...shared.value.filter((result) => links.includes(result.url)),
+				...(await check(links.filter((url) => !known.has(url))))
+			]
+			const hits = results.filter((result) => result.cached).length
+			testInfo.annotations.push({
+				type: 'link-cache',
+				description: `${hits} hits, ${results.length - hits} misses`
+			})
+			const retried = results.filter((result) => result.retries)
+			if (retried.length) {
+				testInfo.annotations.push({
+					type: 'retries',
+					description: retried.map((result) => `${result.url} x${result.retries}`).join(', ')
+				})
+			}
+			testInfo.annotations.push({
+				type: 'host-concurrency',
+				description: JSON.stringify(HostScheduler.shared().limits())
+			})
+			await testInfo.attach('link-results', {
+				body: JSON.stringify(results, null, 2),
+				contentType: 'application/json'
+			})
+			for (const result of results) {
+				expect.soft(result.error, `Request failed: ${result.url}`).toBeUndefined()
+				expect.soft(result.status, `Broken link: ${result.url}`).not.toBe(404)
 			}
 		})
 	}
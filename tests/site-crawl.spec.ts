@@ -0,0 +1,44 @@
+import { expect } from '@playwright/test'
+import { test } from '../fixtures/site.fixture'
+import { SiteCrawler } from '../utils/SiteCrawler'
+import { StatusCache } from '../utils/StatusCache'
+import { VisitedSetMode } from '../utils/VisitedSet'
+
+const patterns = (value: string | undefined) =>
+	value ? value.split(',').map((pattern) => new RegExp(pattern)) : undefined
+
+test.describe('Site Crawl', () => {
+	// Skipped before any fixture runs, so default runs never open a browser context for it.
+	test.skip(process.env.SITE_CRAWL !== '1', 'Set SITE_CRAWL=1 to crawl the whole site')
+	test.use({ blockResources: 'dom-only' })
+
+	test('no broken links reachable from the checked pages', async ({ request, page }, testInfo) => {
+		test.setTimeout(Number(process.env.CRAWL_TIMEOUT_MS ?? 30 * 60 * 1000))
+		const seeds: string[] = require('../data/checkedPages.json')
+
+		const crawler = new SiteCrawler(request, page, {
+			maxDepth: Number(process.env.CRAWL_MAX_DEPTH ?? 3),
+			maxPages: Number(process.env.CRAWL_MAX_PAGES ?? 500),
+			include: patterns(process.env.CRAWL_INCLUDE),
+			exclude: patterns(process.env.CRAWL_EXCLUDE),
+			cache: StatusCache.shared(),
+			visited: {
+				mode: process.env.CRAWL_VISITED as VisitedSetMode | undefined,
+				falsePositiveRate: Number(process.env.CRAWL_VISITED_FP_RATE ?? 0.001)
+			}
+		})
+		const report = await crawler.crawl(seeds)
+
+		testInfo.annotations.push({
+			type: 'crawl',
+			description:
+				`${report.pagesCrawled} pages, ${report.linksChecked} links in ${report.durationMs} ms ` +
+				`(${report.pagesPerMinute} pages/min)`
+		})
+		await testInfo.attach('crawl-report', {
+			body: JSON.stringify(report, null, 2),
+			contentType: 'application/json'
+		})
+		expect(report.broken).toEqual([])
+	})
+})
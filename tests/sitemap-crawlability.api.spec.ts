@@ -0,0 +1,37 @@
+import { expect } from '@playwright/test';
+import { test } from '../fixtures/api.fixture';
+import { DEFAULT_LINK_CONCURRENCY, mapWithConcurrency } from '../utils/LinkChecker';
+
+const SHARD_COUNT = Number(process.env.SITEMAP_SHARDS ?? 8);
+
+test.describe('Sitemap and Crawlability', () => {
+  // Shards are independent, so they can spread over every worker and CI shard.
+  // They run once, in the api project; a browser is only launched for client-rendered URLs.
+  test.describe.configure({ mode: 'parallel' });
+  test.use({ blockResources: 'dom-only' });
+
+  for (let shard = 0; shard < SHARD_COUNT; shard++) {
+    test(`sitemap URLs are accessible and crawlable (shard ${shard + 1}/${SHARD_COUNT})`, async ({ sitemap, sitemapPage }, testInfo) => {
+      const entries = sitemap.filter((_, i) => i % SHARD_COUNT === shard);
+      test.setTimeout(30000 + entries.length * 1000);
+      const started = Date.now();
+
+      const verdicts = await mapWithConcurrency(entries, DEFAULT_LINK_CONCURRENCY, (entry) =>
+        sitemapPage.evaluateEntry(entry)
+      );
+      for (const verdict of verdicts) {
+        expect.soft(verdict.error, `URL: ${verdict.url}`).toBeUndefined();
+        expect.soft(verdict.status, `URL: ${verdict.url}`).toBeLessThan(400);
+        expect.soft(verdict.noindex, `URL: ${verdict.url} (${verdict.source})`).toBe(false);
+      }
+
+      testInfo.annotations.push({
+        type: 'shard',
+        description: `${entries.length} URLs in ${Date.now() - started} ms, ` +
+          `${verdicts.filter((verdict) => verdict.source === 'unchanged').length} unchanged, ` +
+          `${verdicts.filter((verdict) => verdict.source === 'browser').length} rendered in the browser, ` +
+          `${verdicts.reduce((sum, verdict) => sum + (verdict.retries ?? 0), 0)} retries`
+      });
+    });
+  }
+});
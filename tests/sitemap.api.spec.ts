@@ -0,0 +1,15 @@
+import { expect } from '@playwright/test';
+import { test } from '../fixtures/api.fixture';
+import { parseSitemap } from '../utils/SitemapParser';
+import { SITEMAP_URL } from '../utils/SitemapStore';
+
+test.describe('Sitemap', () => {
+  // Fetched live on purpose: the `sitemap` fixture may serve a snapshot up to SITEMAP_TTL_MS old.
+  test('sitemap.xml exists and contains URLs', async ({ request }) => {
+    const resp = await request.get(SITEMAP_URL);
+    expect(resp.status()).toBe(200);
+    let nodes = 0;
+    for await (const _ of parseSitemap([await resp.text()])) nodes++;
+    expect(nodes).toBeGreaterThan(0);
+  });
+});
@@ -0,0 +1,55 @@
+import fs from 'fs'
+import path from 'path'
+import { writeFileAtomic } from './AtomicFile'
+
+/**
+ * AppendOnlyLog
+ * JSON-lines file that several worker processes append to. Each process
+ * replays lines written by the others on `sync()`; single appends of one
+ * line are atomic on local filesystems, so no locking is needed.
+ */
+export class AppendOnlyLog<T> {
+	readonly file: string
+	private readonly onRecord: (record: T) => void
+	private offset = 0
+
+	constructor(file: string, onRecord: (record: T) => void) {
+		this.file = file
+		this.onRecord = onRecord
+		fs.mkdirSync(path.dirname(file), { recursive: true })
+	}
+
+	append(record: T) {
+		fs.appendFileSync(this.file, JSON.stringify(record) + '\n')
+	}
+
+	/** Replays lines appended since the last sync, including this process's own. */
+	sync() {
+		let size: number
+		try {
+			size = fs.statSync(this.file).size
+		} catch {
+			return
+		}
+		if (size <= this.offset) return
+		const fd = fs.openSync(this.file, 'r')
+		try {
+			const buffer = Buffer.alloc(size - this.offset)
+			fs.readSync(fd, buffer, 0, buffer.length, this.offset)
+			// A trailing partial line is still being written; leave it for the next sync.
+			const complete = buffer.lastIndexOf('\n') + 1
+			for (const line of buffer.subarray(0, complete).toString('utf8').split('\n')) {
+				if (line) this.onRecord(JSON.parse(line) as T)
+			}
+			this.offset += complete
+		} finally {
+			fs.closeSync(fd)
+		}
+	}
+
+	/** Replaces the file with `records`. Only safe while no other process is writing. */
+	rewrite(records: T[]) {
+		writeFileAtomic(this.file, records.map((record) => JSON.stringify(record) + '\n').join(''))
+		this.offset = fs.statSync(this.file).size
+	}
+}
@@ -0,0 +1,33 @@
+import fs from 'fs'
+import path from 'path'
+
+/**
+ * Writes `data` to a temporary file next to `file`, then renames it into
+ * place, so readers in other workers see the old or the new contents but
+ * never a partial file. Creates the directory when needed.
+ */
+export function writeFileAtomic(file: string, data: string) {
+	fs.mkdirSync(path.dirname(file), { recursive: true })
+	const tmp = `${file}.${process.pid}.tmp`
+	fs.writeFileSync(tmp, data)
+	fs.renameSync(tmp, file)
+}
+
+/**
+ * Like `writeFileAtomic`, but only if `file` does not exist yet. Returns
+ * false when another process created it first.
+ */
+export function createFileAtomic(file: string, data: string): boolean {
+	fs.mkdirSync(path.dirname(file), { recursive: true })
+	const tmp = `${file}.${process.pid}.tmp`
+	fs.writeFileSync(tmp, data)
+	try {
+		fs.linkSync(tmp, file)
+		return true
+	} catch (e) {
+		if ((e as NodeJS.ErrnoException).code === 'EEXIST') return false
+		throw e
+	} finally {
+		fs.unlinkSync(tmp)
+	}
+}
@@ -0,0 +1,56 @@
+import { BrowserContext, Request } from '@playwright/test'
+
+export type BrokenResource = {
+	url: string
+	/** HTTP status, or 0 when the request failed without a response. */
+	status: number
+	failure?: string
+	resourceType: string
+	/** URL of the document that issued the request. */
+	initiator: string
+}
+
+/** Failures caused by the test itself: cancelled on navigation, or blocked on purpose. */
+const IGNORED_FAILURES = /ERR_ABORTED|NS_BINDING_ABORTED|ERR_BLOCKED_BY_CLIENT|cancelled/i
+
+/**
+ * BrokenResourceMonitor
+ * Records every subresource that answered 4xx/5xx or failed while the
+ * context's pages loaded, using only the traffic the browser already made.
+ */
+export class BrokenResourceMonitor {
+	readonly broken: BrokenResource[] = []
+	private readonly ignored: (request: Request) => boolean
+
+	/** @param ignored Requests to leave out, e.g. ones a ResourceBlocker aborted. */
+	constructor(ignored: (request: Request) => boolean = () => false) {
+		this.ignored = ignored
+	}
+
+	attach(context: BrowserContext) {
+		context.on('response', (response) => {
+			if (response.status() < 400 || this.ignored(response.request())) return
+			this.broken.push({ ...this.describe(response.request()), status: response.status() })
+		})
+		context.on('requestfailed', (request) => {
+			const failure = request.failure()?.errorText ?? 'failed'
+			if (IGNORED_FAILURES.test(failure) || this.ignored(request)) return
+			this.broken.push({ ...this.describe(request), status: 0, failure })
+		})
+	}
+
+	/** Forgets every entry so far, e.g. before a pooled tab is handed to the next test. */
+	clear() {
+		this.broken.length = 0
+	}
+
+	private describe(request: Request): Omit<BrokenResource, 'status'> {
+		let initiator = ''
+		try {
+			initiator = request.frame().url()
+		} catch {
+			// Service worker requests have no frame.
+		}
+		return { url: request.url(), resourceType: request.resourceType(), initiator }
+	}
+}
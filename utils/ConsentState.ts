@@ -0,0 +1,76 @@
+import { Browser, BrowserContext } from '@playwright/test'
+import fs from 'fs'
+import path from 'path'
+import { setTimeout as sleep } from 'timers/promises'
+import { writeFileAtomic } from './AtomicFile'
+import { NETWORK_MODE } from './NetworkMode'
+import { runFile } from './RunDirectory'
+
+export const CONSENT_STATE_FILE =
+	process.env.CONSENT_STATE_FILE ?? path.join(__dirname, '..', '.cache', 'consent-state.json')
+/** How long a worker waits for another worker's consent capture. */
+export const CONSENT_CAPTURE_WAIT_MS = Number(process.env.CONSENT_CAPTURE_WAIT_MS ?? 60 * 1000)
+
+/** Set by OneTrust once the visitor has answered the banner. */
+export const CONSENT_COOKIE = 'OptanonAlertBoxClosed'
+
+export async function hasConsentCookie(context: BrowserContext): Promise<boolean> {
+	return (await context.cookies()).some((cookie) => cookie.name === CONSENT_COOKIE)
+}
+
+/**
+ * Rejects all cookies on the Netlify homepage once in a fresh context of
+ * `browser` and saves the resulting OneTrust cookies as a storageState file
+ * for every test context to start from.
+ */
+export async function saveConsentState(browser: Browser, url = 'https://www.netlify.com/', file = CONSENT_STATE_FILE) {
+	const context = await browser.newContext()
+	try {
+		const page = await context.newPage()
+		await page.goto(url)
+		await page.locator('button[id="onetrust-reject-all-handler"]').click()
+		for (let attempt = 0; !(await hasConsentCookie(context)); attempt++) {
+			if (attempt === 50) throw new Error(`${CONSENT_COOKIE} cookie was not set after rejecting cookies`)
+			await page.waitForTimeout(100)
+		}
+		writeFileAtomic(file, JSON.stringify(await context.storageState(), null, 2))
+	} finally {
+		await context.close()
+	}
+}
+
+/** The saved state file, or undefined when no capture has succeeded yet. */
+export function consentStateFile(): string | undefined {
+	return fs.existsSync(CONSENT_STATE_FILE) ? CONSENT_STATE_FILE : undefined
+}
+
+/**
+ * Returns a storageState file with consent given. The first worker that
+ * needs it captures it with its own browser, once per run; the others wait
+ * for that capture. Replay runs, runs without global setup and failed
+ * captures fall back to the last saved file.
+ */
+export async function ensureConsentState(browser: Browser): Promise<string | undefined> {
+	const file = runFile('consent-state.json')
+	if (NETWORK_MODE === 'replay' || !file) return consentStateFile()
+	const failed = `${file}.failed`
+	let claimed = false
+	try {
+		fs.writeFileSync(`${file}.claim`, '', { flag: 'wx' })
+		claimed = true
+	} catch (e) {
+		if ((e as NodeJS.ErrnoException).code !== 'EEXIST') throw e
+	}
+	if (claimed) {
+		try {
+			await saveConsentState(browser, undefined, file)
+			fs.copyFileSync(file, CONSENT_STATE_FILE)
+		} catch (e) {
+			console.warn(`Consent state capture failed: ${e instanceof Error ? e.message : e}`)
+			fs.writeFileSync(failed, '')
+		}
+	}
+	const deadline = Date.now() + CONSENT_CAPTURE_WAIT_MS
+	while (!fs.existsSync(file) && !fs.existsSync(failed) && Date.now() < deadline) await sleep(100)
+	return fs.existsSync(file) ? file : consentStateFile()
+}
@@ -0,0 +1,64 @@
+import { BrowserContext, TestInfo, expect } from '@playwright/test'
+import { BrokenResourceMonitor } from './BrokenResourceMonitor'
+import { ResourceBlocker } from './ResourceBlocker'
+import { WebVitalsCollector } from './WebVitals'
+
+export type CollectorOptions = {
+	/** Name of a profile in data/resourceProfiles.json whose requests are aborted. */
+	blockResources?: string
+	webVitals?: boolean
+	detectBrokenResources?: boolean
+}
+
+export type Collectors = {
+	blocker?: ResourceBlocker
+	vitals?: WebVitalsCollector
+	monitor?: BrokenResourceMonitor
+}
+
+/**
+ * Attaches the resource blocker, web vitals collector and broken-resource
+ * monitor a test asked for. Routes registered earlier, such as the HAR
+ * archive, only see requests the blocker lets through.
+ */
+export async function attachCollectors(
+	context: BrowserContext,
+	{ blockResources, webVitals, detectBrokenResources }: CollectorOptions
+): Promise<Collectors> {
+	const blocker = blockResources ? new ResourceBlocker(blockResources) : undefined
+	if (detectBrokenResources && blocker?.profile.resourceTypes.length) {
+		throw new Error(
+			`detectBrokenResources cannot report ${blocker.profile.resourceTypes.join(', ')} requests ` +
+				`that the '${blockResources}' profile aborts; use 'third-party' or no blocking`
+		)
+	}
+	await blocker?.attach(context)
+	const vitals = webVitals ? new WebVitalsCollector() : undefined
+	await vitals?.attach(context)
+	const monitor = detectBrokenResources
+		? new BrokenResourceMonitor((request) => blocker?.isBlocked(request) ?? false)
+		: undefined
+	monitor?.attach(context)
+	return { blocker, vitals, monitor }
+}
+
+/** Reports what a context's collectors saw and fails the test on vitals over budget or broken subresources. */
+export async function reportCollectors(testInfo: TestInfo, { blocker, vitals, monitor }: Collectors) {
+	if (blocker) {
+		testInfo.annotations.push({ type: 'blocked-requests', description: blocker.summary() })
+	}
+	if (vitals) {
+		await testInfo.attach('web-vitals', {
+			body: JSON.stringify(vitals.snapshots(), null, 2),
+			contentType: 'application/json'
+		})
+		expect(vitals.violations(), 'Web vitals over budget').toEqual([])
+	}
+	if (monitor) {
+		await testInfo.attach('broken-resources', {
+			body: JSON.stringify(monitor.broken, null, 2),
+			contentType: 'application/json'
+		})
+		expect(monitor.broken, 'Broken subresources').toEqual([])
+	}
+}
@@ -0,0 +1,86 @@
+import { AppendOnlyLog } from './AppendOnlyLog'
+import { modeCacheFile } from './NetworkMode'
+import { SitemapEntry } from './SitemapParser'
+import { normalizeUrl } from './StatusCache'
+
+export type CrawlStateEntry = {
+	url: string
+	status: number
+	etag?: string
+	lastModified?: string
+	/** `<lastmod>` of the sitemap entry when the URL was last checked. */
+	sitemapLastmod?: string
+	noindex?: boolean
+	checkedAt: number
+}
+
+export const CRAWL_STATE_FILE =
+	process.env.CRAWL_STATE_FILE ?? modeCacheFile('crawl-state.jsonl')
+/** Incremental crawling is opt-in so a default run always checks every URL. */
+export const CRAWL_INCREMENTAL = process.env.CRAWL_INCREMENTAL === '1'
+export const CRAWL_FRESHNESS_MS = Number(process.env.CRAWL_FRESHNESS_MS ?? 24 * 60 * 60 * 1000)
+
+/**
+ * CrawlState
+ * What the previous runs learned about each URL, kept across runs so later
+ * runs can send conditional requests and skip sitemap entries that have not
+ * changed. Unlike StatusCache it has no TTL; staleness is decided per check.
+ */
+export class CrawlState {
+	private static instance: CrawlState | undefined
+
+	readonly freshnessMs: number
+	private readonly entries = new Map<string, CrawlStateEntry>()
+	private readonly log: AppendOnlyLog<CrawlStateEntry>
+
+	constructor(file: string = CRAWL_STATE_FILE, freshnessMs: number = CRAWL_FRESHNESS_MS) {
+		this.freshnessMs = freshnessMs
+		this.log = new AppendOnlyLog<CrawlStateEntry>(file, (entry) => {
+			const known = this.entries.get(entry.url)
+			if (!known || known.checkedAt < entry.checkedAt) this.entries.set(entry.url, entry)
+		})
+	}
+
+	static shared(): CrawlState {
+		return (CrawlState.instance ??= new CrawlState())
+	}
+
+	get(url: string): CrawlStateEntry | undefined {
+		this.log.sync()
+		return this.entries.get(normalizeUrl(url))
+	}
+
+	/** Merges `update` into the URL's entry and stamps the check time. */
+	record(url: string, update: Omit<CrawlStateEntry, 'url' | 'checkedAt'>) {
+		const key = normalizeUrl(url)
+		const entry = { ...this.entries.get(key), ...update, url: key, checkedAt: Date.now() }
+		this.entries.set(key, entry)
+		this.log.append(entry)
+	}
+
+	/**
+	 * Returns the stored entry when the sitemap `<lastmod>` is unchanged and the
+	 * URL was checked within the freshness window, meaning it can be skipped.
+	 */
+	unchanged(entry: SitemapEntry): CrawlStateEntry | undefined {
+		if (!entry.lastmod) return undefined
+		const known = this.get(entry.loc)
+		if (!known || known.sitemapLastmod !== entry.lastmod) return undefined
+		return Date.now() - known.checkedAt <= this.freshnessMs ? known : undefined
+	}
+
+	/** `If-None-Match` / `If-Modified-Since` headers for a revalidating request. */
+	conditionalHeaders(url: string): Record<string, string> {
+		const known = this.get(url)
+		const headers: Record<string, string> = {}
+		if (known?.etag) headers['If-None-Match'] = known.etag
+		if (known?.lastModified) headers['If-Modified-Since'] = known.lastModified
+		return headers
+	}
+
+	/** Rewrites the log with one line per URL. Run from global setup only. */
+	compact() {
+		this.log.sync()
+		this.log.rewrite([...this.entries.values()])
+	}
+}
@@ -0,0 +1,159 @@
+import { setTimeout as sleep } from 'timers/promises'
+
+export type HostSchedulerOptions = {
+	/** Concurrency a host starts at. */
+	initial?: number
+	min?: number
+	max?: number
+	/** Responses slower than this count as congestion signals for growth purposes. */
+	healthyLatencyMs?: number
+}
+
+/** What the scheduler needs to know about a finished request. */
+export type RequestOutcome = {
+	status?: number
+	/** Raw `Retry-After` header value. */
+	retryAfter?: string
+	error?: unknown
+}
+
+/** Answers that mean the origin or its upstream is overloaded. */
+const BACKOFF_STATUSES = [429, 503, 504]
+
+export const DEFAULT_SCHEDULER_OPTIONS: Required<HostSchedulerOptions> = {
+	initial: Number(process.env.HOST_CONCURRENCY_INITIAL ?? 4),
+	min: 1,
+	max: Number(process.env.HOST_CONCURRENCY_MAX ?? 32),
+	healthyLatencyMs: Number(process.env.HOST_HEALTHY_LATENCY_MS ?? 2000)
+}
+
+/** Parses `Retry-After` as seconds or an HTTP date; returns milliseconds to wait. */
+export function retryAfterMs(value: string | undefined, now = Date.now()): number | undefined {
+	if (!value) return undefined
+	const seconds = Number(value)
+	if (!Number.isNaN(seconds)) return Math.max(0, seconds * 1000)
+	const date = Date.parse(value)
+	return Number.isNaN(date) ? undefined : Math.max(0, date - now)
+}
+
+/**
+ * Whether a request failed by running out of time. Playwright rejects API
+ * requests with "Request timed out after N ms" and page actions with a
+ * `TimeoutError` whose message says "Timeout N ms exceeded".
+ */
+export function isTimeout(error: unknown): boolean {
+	if (error instanceof Error && error.name === 'TimeoutError') return true
+	return /time(d)?\s?out/i.test(error instanceof Error ? error.message : String(error))
+}
+
+/**
+ * Additive-increase / multiplicative-decrease limiter for one origin.
+ * Each fast, non-5xx response adds 1/limit, i.e. about one slot per round
+ * of requests; a 429, 503, 504 or timeout halves the limit, at most once per
+ * round. Other 5xx answers hold the limit where it is.
+ */
+class HostLimiter {
+	limit: number
+	inFlight = 0
+	private pausedUntil = 0
+	private lastDecrease = 0
+	private readonly waiting: (() => void)[] = []
+	private readonly options: Required<HostSchedulerOptions>
+
+	constructor(options: Required<HostSchedulerOptions>) {
+		this.options = options
+		this.limit = options.initial
+	}
+
+	async acquire() {
+		for (;;) {
+			const pause = this.pausedUntil - Date.now()
+			if (pause > 0) {
+				await sleep(pause)
+				continue
+			}
+			if (this.inFlight < Math.floor(this.limit)) break
+			await new Promise<void>((resolve) => this.waiting.push(resolve))
+		}
+		this.inFlight++
+	}
+
+	release(outcome: RequestOutcome, latencyMs: number, startedAt: number) {
+		this.inFlight--
+		const wait = retryAfterMs(outcome.retryAfter)
+		if (wait !== undefined && outcome.status !== undefined && BACKOFF_STATUSES.includes(outcome.status)) {
+			this.pausedUntil = Math.max(this.pausedUntil, Date.now() + wait)
+		}
+		const congested =
+			(outcome.status !== undefined && BACKOFF_STATUSES.includes(outcome.status)) ||
+			(outcome.error !== undefined && isTimeout(outcome.error))
+		if (congested) {
+			// Requests started before the last decrease saw the old limit; don't punish twice.
+			if (startedAt >= this.lastDecrease) {
+				this.limit = Math.max(this.options.min, this.limit / 2)
+				this.lastDecrease = Date.now()
+			}
+		} else if (
+			outcome.error === undefined &&
+			(outcome.status === undefined || outcome.status < 500) &&
+			latencyMs <= this.options.healthyLatencyMs
+		) {
+			this.limit = Math.min(this.options.max, this.limit + 1 / this.limit)
+		}
+		this.waiting.splice(0).forEach((wake) => wake())
+	}
+}
+
+/**
+ * HostScheduler
+ * Runs requests under a per-origin AIMD concurrency limit and honors
+ * `Retry-After` by pausing the origin. One scheduler is shared per worker.
+ */
+export class HostScheduler {
+	private static instance: HostScheduler | undefined
+
+	readonly options: Required<HostSchedulerOptions>
+	private readonly hosts = new Map<string, HostLimiter>()
+
+	constructor(options: HostSchedulerOptions = {}) {
+		this.options = { ...DEFAULT_SCHEDULER_OPTIONS, ...options }
+	}
+
+	static shared(): HostScheduler {
+		return (HostScheduler.instance ??= new HostScheduler())
+	}
+
+	async run<T>(url: string, request: () => Promise<T>, outcome: (result: T) => RequestOutcome): Promise<T> {
+		const limiter = this.limiter(url)
+		await limiter.acquire()
+		const startedAt = Date.now()
+		try {
+			const result = await request()
+			limiter.release(outcome(result), Date.now() - startedAt, startedAt)
+			return result
+		} catch (error) {
+			limiter.release({ error }, Date.now() - startedAt, startedAt)
+			throw error
+		}
+	}
+
+	/** Current concurrency limit per origin. */
+	limits(): Record<string, number> {
+		return Object.fromEntries([...this.hosts].map(([origin, limiter]) => [origin, Math.floor(limiter.limit)]))
+	}
+
+	private limiter(url: string): HostLimiter {
+		let origin: string
+		try {
+			origin = new URL(url).origin
+		} catch {
+			origin = url
+		}
+		let limiter = this.hosts.get(origin)
+		if (!limiter) {
+			limiter = new HostLimiter(this.options)
+			this.hosts.set(origin, limiter)
+		}
+		return limiter
+	}
+}
@@ -0,0 +1,155 @@
+import { Page, Request, Route } from '@playwright/test'
+import { setTimeout as sleep } from 'timers/promises'
+
+export type HubSpotMode = 'mock' | 'live'
+
+/** `live` lets HubSpot answer, for checking the canned responses against the real contract. */
+export const HUBSPOT_MODE = (process.env.HUBSPOT_MODE ?? 'mock') as HubSpotMode
+/** Delay before a mocked response is sent, to imitate HubSpot's latency. */
+export const HUBSPOT_LATENCY_MS = Number(process.env.HUBSPOT_LATENCY_MS ?? 0)
+
+export type MockResponse = {
+	status?: number
+	json: unknown
+}
+
+export type MockHandler = (request: Request) => MockResponse | Promise<MockResponse>
+
+export type MockEndpoint = {
+	/** Glob or regular expression passed to `page.route`. */
+	url: string | RegExp
+	method: string
+	respond: MockHandler
+	/** Overrides the registry's latency for this endpoint. */
+	latencyMs?: number
+}
+
+export type MockCall = {
+	endpoint: string
+	url: string
+	body: string | null
+}
+
+/** Free-mail domains HubSpot flags with `emailFree`. */
+const FREE_MAIL = ['gmail.com', 'yahoo.com', 'hotmail.com', 'outlook.com', 'icloud.com', 'aol.com', 'gmx.com']
+
+/** Reads the address the form embed posts, as a bare string or a JSON string. */
+export function postedEmail(body: string | null): string {
+	const text = (body ?? '').trim()
+	try {
+		const parsed = JSON.parse(text)
+		if (typeof parsed === 'string') return parsed
+		if (typeof parsed?.email === 'string') return parsed.email
+	} catch {
+		// Not JSON; the embed sends the raw address.
+	}
+	return text
+}
+
+/**
+ * Canned emailcheck answer in HubSpot's format. Addresses whose top-level
+ * domain is a single letter fail with the suggestion HubSpot gives for
+ * them; other syntactically valid addresses pass.
+ */
+export function emailCheckResponse(email: string): MockResponse {
+	const match = email.match(/^[^\s@]+@([^\s@]+\.([^\s@.]+))$/)
+	const domain = match?.[1].toLowerCase()
+	const success = !!match && match[2].length > 1
+	return {
+		json: {
+			success,
+			email,
+			emailShouldResubscribe: false,
+			emailFree: !!domain && FREE_MAIL.includes(domain),
+			emailSuggestion: match && !success ? email + 'a' : null,
+			isRateLimited: null
+		}
+	}
+}
+
+/** Canned answer of the form submission endpoint. */
+export function submitResponse(): MockResponse {
+	return {
+		json: {
+			inlineMessage:
+				'<h2>Thank you for signing up!</h2><p>We are looking forward to keep you posted with updates and interesting articles.</p>',
+			redirectUrl: null
+		}
+	}
+}
+
+export const HUBSPOT_ENDPOINTS: Record<string, MockEndpoint> = {
+	emailcheck: {
+		url: '**/emailcheck/v1/json-ext**',
+		method: 'POST',
+		respond: (request) => emailCheckResponse(postedEmail(request.postData()))
+	},
+	submit: {
+		url: '**/submissions/v3/public/submit/**',
+		method: 'POST',
+		respond: () => submitResponse()
+	}
+}
+
+/**
+ * MockRegistry
+ * Answers the HubSpot form endpoints from canned handlers through
+ * `page.route`, so lead-capture tests do not wait on or get rate-limited by
+ * HubSpot. Handlers can be replaced per test, and every call is recorded.
+ * In live mode nothing is routed and requests reach HubSpot.
+ */
+export class MockRegistry {
+	readonly mode: HubSpotMode
+	readonly latencyMs: number
+	readonly calls: MockCall[] = []
+	private readonly endpoints: Record<string, MockEndpoint>
+
+	constructor(
+		mode: HubSpotMode = HUBSPOT_MODE,
+		latencyMs: number = HUBSPOT_LATENCY_MS,
+		endpoints: Record<string, MockEndpoint> = HUBSPOT_ENDPOINTS
+	) {
+		this.mode = mode
+		this.latencyMs = latencyMs
+		this.endpoints = { ...endpoints }
+	}
+
+	/** Replaces the handler of `name`; takes effect for the next matching request. */
+	override(name: string, respond: MockHandler) {
+		const endpoint = this.endpoints[name]
+		if (!endpoint) throw new Error(`Unknown mock endpoint "${name}"`)
+		this.endpoints[name] = { ...endpoint, respond }
+	}
+
+	async attach(page: Page) {
+		if (this.mode === 'live') return
+		for (const [name, { url }] of Object.entries(this.endpoints)) {
+			await page.route(url, (route) => this.handle(name, route))
+		}
+	}
+
+	/** Removes the mock routes, e.g. before a pooled tab goes back to its pool. */
+	async detach(page: Page) {
+		if (this.mode === 'live') return
+		for (const { url } of Object.values(this.endpoints)) {
+			await page.unroute(url)
+		}
+	}
+
+	private async handle(name: string, route: Route) {
+		const request = route.request()
+		const { method, respond, latencyMs } = this.endpoints[name]
+		const cors = {
+			'Access-Control-Allow-Origin': request.headers()['origin'] ?? '*',
+			'Access-Control-Allow-Credentials': 'true',
+			'Access-Control-Allow-Headers': 'Content-Type',
+			'Access-Control-Allow-Methods': method
+		}
+		if (request.method() === 'OPTIONS') return route.fulfill({ status: 204, headers: cors })
+		if (request.method() !== method) return route.fallback()
+		this.calls.push({ endpoint: name, url: request.url(), body: request.postData() })
+		const { status, json } = await respond(request)
+		await sleep(latencyMs ?? this.latencyMs)
+		await route.fulfill({ status: status ?? 200, json, headers: cors })
+	}
+}
@@ -0,0 +1,46 @@
+/** Values below this are counted exactly; above it each power of two gets half this many buckets. */
+const SUB_BUCKETS = 64
+
+function bucketOf(value: number): number {
+	if (value < SUB_BUCKETS) return value
+	const shift = Math.floor(Math.log2(value)) - Math.log2(SUB_BUCKETS) + 1
+	return Math.floor(value / 2 ** shift) * 2 ** shift
+}
+
+function bucketTop(bucket: number): number {
+	if (bucket < SUB_BUCKETS) return bucket
+	const shift = Math.floor(Math.log2(bucket)) - Math.log2(SUB_BUCKETS) + 1
+	return bucket + 2 ** shift - 1
+}
+
+/**
+ * LatencyHistogram
+ * HDR-style histogram of millisecond values: exact below 64 ms, then 32
+ * buckets per power of two, so percentiles are within about 3% while memory
+ * stays proportional to the value range rather than the sample count.
+ */
+export class LatencyHistogram {
+	private readonly counts = new Map<number, number>()
+	count = 0
+	max = 0
+
+	record(ms: number) {
+		const value = Math.max(0, Math.round(ms))
+		const bucket = bucketOf(value)
+		this.counts.set(bucket, (this.counts.get(bucket) ?? 0) + 1)
+		this.count++
+		this.max = Math.max(this.max, value)
+	}
+
+	/** Upper bound of the bucket holding the `p`th percentile (0-100). */
+	percentile(p: number): number {
+		if (!this.count) return 0
+		const rank = Math.ceil((p / 100) * this.count)
+		let seen = 0
+		for (const bucket of [...this.counts.keys()].sort((a, b) => a - b)) {
+			seen += this.counts.get(bucket)!
+			if (seen >= rank) return Math.min(bucketTop(bucket), this.max)
+		}
+		return this.max
+	}
+}
@@ -0,0 +1,126 @@
+import { APIRequestContext } from '@playwright/test'
+import { CrawlState } from './CrawlState'
+import { StatusCache, normalizeUrl } from './StatusCache'
+import { ProbeOptions, probeUrl } from './UrlProbe'
+
+export type LinkResult = {
+	url: string
+	status: number
+	durationMs: number
+	error?: string
+	/** Method that produced the status; absent for cache hits and failures. */
+	method?: 'HEAD' | 'GET'
+	bytes?: number
+	/** True when the status came from the status cache. */
+	cached?: boolean
+	/** True when the server answered 304 to a conditional request. */
+	notModified?: boolean
+	/** Requests repeated by the retry policy; absent for cache hits. */
+	retries?: number
+}
+
+export type LinkCheckOptions = ProbeOptions & {
+	/**
+	 * Maximum number of probes in flight at once across all hosts. Each host is
+	 * further limited by the adaptive HostScheduler.
+	 */
+	concurrency?: number
+	/** Run-wide status cache; probes are skipped for URLs another test already checked. */
+	cache?: StatusCache
+	/** Persistent crawl state; probes revalidate with conditional headers. */
+	crawlState?: CrawlState
+}
+
+export const DEFAULT_LINK_CONCURRENCY = Number(process.env.LINK_CONCURRENCY ?? 64)
+
+/**
+ * Runs `fn` over `items` with at most `limit` calls pending at a time.
+ * Results keep the order of `items`.
+ */
+export async function mapWithConcurrency<T, R>(
+	items: T[],
+	limit: number,
+	fn: (item: T, index: number) => Promise<R>
+): Promise<R[]> {
+	const results = new Array<R>(items.length)
+	let next = 0
+	const worker = async () => {
+		while (next < items.length) {
+			const index = next++
+			results[index] = await fn(items[index], index)
+		}
+	}
+	const workers = Math.max(1, Math.min(limit, items.length))
+	await Promise.all(Array.from({ length: workers }, worker))
+	return results
+}
+
+/**
+ * LinkChecker
+ * Probes a list of URLs with a bounded number of requests in flight and
+ * returns one result per URL. Request failures are captured on the result
+ * instead of rejecting, so callers can report every link.
+ */
+export class LinkChecker {
+	readonly request: APIRequestContext
+	readonly concurrency: number
+	readonly cache?: StatusCache
+	readonly crawlState?: CrawlState
+	readonly probeOptions: ProbeOptions
+	private readonly pending = new Map<string, Promise<LinkResult>>()
+
+	constructor(request: APIRequestContext, options: LinkCheckOptions = {}) {
+		this.request = request
+		this.concurrency = options.concurrency ?? DEFAULT_LINK_CONCURRENCY
+		this.cache = options.cache
+		this.crawlState = options.crawlState
+		this.probeOptions = { mode: options.mode, maxBodyBytes: options.maxBodyBytes, scheduler: options.scheduler, retry: options.retry }
+	}
+
+	async check(urls: string[]): Promise<LinkResult[]> {
+		return mapWithConcurrency(urls, this.concurrency, (url) => this.checkOne(url))
+	}
+
+	async checkOne(url: string): Promise<LinkResult> {
+		if (!this.cache) return this.probe(url)
+		const entry = this.cache.get(url)
+		if (entry) return { url, status: entry.status, durationMs: 0, cached: true }
+		// Duplicate links on one page share a single in-flight probe.
+		const key = normalizeUrl(url)
+		let probe = this.pending.get(key)
+		if (!probe) {
+			probe = this.probe(url).then((result) => {
+				if (!result.error) this.cache?.set(url, result.status)
+				return result
+			})
+			this.pending.set(key, probe)
+			probe.finally(() => this.pending.delete(key))
+		}
+		return { ...(await probe), url }
+	}
+
+	private async probe(url: string): Promise<LinkResult> {
+		const started = Date.now()
+		try {
+			const known = this.crawlState?.get(url)
+			const { status, method, bytes, etag, lastModified, retries } = await probeUrl(this.request, url, {
+				...this.probeOptions,
+				headers: this.crawlState?.conditionalHeaders(url)
+			})
+			const durationMs = Date.now() - started
+			if (status === 304 && known) {
+				this.crawlState!.record(url, { status: known.status })
+				return { url, status: known.status, method, bytes, durationMs, retries, notModified: true }
+			}
+			this.crawlState?.record(url, { status, etag, lastModified })
+			return { url, status, method, bytes, durationMs, retries }
+		} catch (e) {
+			return {
+				url,
+				status: 0,
+				durationMs: Date.now() - started,
+				error: e instanceof Error ? e.message : String(e)
+			}
+		}
+	}
+}
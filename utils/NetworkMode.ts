@@ -0,0 +1,74 @@
+import { APIRequestContext, BrowserContext, TestInfo } from '@playwright/test'
+import path from 'path'
+import { fromStandInPath, toStandInUrl } from './StandInServer'
+
+export type NetworkMode = 'live' | 'record' | 'replay'
+
+export const NETWORK_MODE = (process.env.NETWORK_MODE ?? 'live') as NetworkMode
+export const HAR_DIR = process.env.HAR_DIR ?? path.join(__dirname, '..', 'hars')
+export const API_HAR_FILE = path.join(HAR_DIR, 'api.har')
+
+const REQUEST_METHODS = ['get', 'head', 'post', 'put', 'patch', 'delete', 'fetch']
+
+/**
+ * `.cache/<name>` in live mode. Recorded and replayed runs keep their own
+ * copy under `.cache/<mode>/`, so archived answers never leak into live
+ * caches and live answers never stand in for requests a recording needs.
+ */
+export function modeCacheFile(name: string): string {
+	const dir = path.join(__dirname, '..', '.cache')
+	return NETWORK_MODE === 'live' ? path.join(dir, name) : path.join(dir, NETWORK_MODE, name)
+}
+
+/** Origin of the stand-in server started by global setup, if any. */
+function standInOrigin(): string | undefined {
+	return process.env.STAND_IN_ORIGIN
+}
+
+/** Routes `url` through the stand-in server when one is running. */
+export function resolveUrl(url: string): string {
+	const origin = standInOrigin()
+	return origin ? toStandInUrl(origin, url) : url
+}
+
+/** Maps a stand-in URL, such as a response's final URL, back to the live URL. */
+export function originalUrl(url: string): string {
+	const origin = standInOrigin()
+	if (!origin || !url.startsWith(`${origin}/`)) return url
+	return fromStandInPath(url.slice(origin.length)) ?? url
+}
+
+/**
+ * Wraps an APIRequestContext so every request goes through the stand-in
+ * server. Callers keep passing the original URLs.
+ */
+export function withStandIn(request: APIRequestContext): APIRequestContext {
+	if (!standInOrigin()) return request
+	return new Proxy(request, {
+		get(target, property, receiver) {
+			const value = Reflect.get(target, property, receiver)
+			if (typeof property !== 'string' || !REQUEST_METHODS.includes(property)) return value
+			return (url: unknown, ...rest: unknown[]) =>
+				value.call(target, typeof url === 'string' ? resolveUrl(url) : url, ...rest)
+		}
+	})
+}
+
+/** Outside live mode, records or serves the context's traffic from the test's HAR archive. */
+export async function archiveBrowserTraffic(context: BrowserContext, testInfo: TestInfo) {
+	if (NETWORK_MODE === 'live') return
+	await context.routeFromHAR(browserHarPath(testInfo), {
+		update: NETWORK_MODE === 'record',
+		notFound: NETWORK_MODE === 'record' ? 'fallback' : 'abort'
+	})
+}
+
+/** Browser traffic is archived per test and project. */
+export function browserHarPath(testInfo: TestInfo): string {
+	const name = [...testInfo.titlePath, testInfo.project.name]
+		.join(' ')
+		.replace(/[^a-z0-9]+/gi, '-')
+		.replace(/^-|-$/g, '')
+		.toLowerCase()
+	return path.join(HAR_DIR, 'browser', `${name}.har`)
+}
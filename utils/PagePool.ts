@@ -0,0 +1,134 @@
+export const HOME_PAGE_POOL_SIZE = Number(process.env.HOME_PAGE_POOL_SIZE ?? 2)
+export const HOME_PAGE_POOL_MAX_USES = Number(process.env.HOME_PAGE_POOL_MAX_USES ?? 25)
+
+export type PagePoolOptions<T> = {
+	/** Tabs kept open, borrowed or idle. */
+	size: number
+	/** Borrows after which a tab is closed and replaced, even if healthy. */
+	maxUses: number
+	create: () => Promise<T>
+	/** Returns a borrowed tab to its clean state. */
+	reset: (item: T) => Promise<void>
+	/** Whether a tab is still in the state `create` left it in. */
+	healthy: (item: T) => Promise<boolean>
+	destroy: (item: T) => Promise<void>
+}
+
+type Slot<T> = { item: T; uses: number }
+
+type Waiter<T> = { resolve: (slot: Slot<T>) => void; reject: (error: unknown) => void }
+
+/**
+ * PagePool
+ * Worker-scoped pool of pre-warmed tabs. Tests borrow a tab, and on return it
+ * is reset and health-checked; tabs that drifted or reached `maxUses` are
+ * closed and replaced in the background. Borrowers wait when every tab is
+ * taken.
+ */
+export class PagePool<T> {
+	readonly options: PagePoolOptions<T>
+	readonly stats = { created: 0, recycled: 0, discarded: 0 }
+	private readonly idle: Slot<T>[] = []
+	private readonly borrowed = new Map<T, Slot<T>>()
+	private waiters: Waiter<T>[] = []
+	private creating = 0
+
+	constructor(options: PagePoolOptions<T>) {
+		this.options = options
+	}
+
+	private get total(): number {
+		return this.idle.length + this.borrowed.size + this.creating
+	}
+
+	/** Opens tabs until the pool is full. */
+	async warm() {
+		const missing = this.options.size - this.total
+		await Promise.all(Array.from({ length: missing }, () => this.spawn((slot) => this.offer(slot))))
+	}
+
+	async acquire(): Promise<T> {
+		for (let slot = this.idle.shift(); slot; slot = this.idle.shift()) {
+			// Counted as borrowed during the check so the pool never opens a tab too many.
+			this.borrowed.set(slot.item, slot)
+			if (await this.options.healthy(slot.item)) return slot.item
+			this.borrowed.delete(slot.item)
+			await this.discard(slot)
+		}
+		if (this.total < this.options.size) {
+			let created: Slot<T> | undefined
+			await this.spawn((slot) => {
+				created = slot
+				this.borrowed.set(slot.item, slot)
+			})
+			return created!.item
+		}
+		const slot = await new Promise<Slot<T>>((resolve, reject) => this.waiters.push({ resolve, reject }))
+		return slot.item
+	}
+
+	async release(item: T) {
+		const slot = this.borrowed.get(item)
+		if (!slot) return
+		this.borrowed.delete(item)
+		slot.uses++
+		if (slot.uses >= this.options.maxUses) {
+			this.stats.recycled++
+			await this.options.destroy(slot.item)
+			this.replenish()
+			return
+		}
+		let clean = false
+		try {
+			await this.options.reset(slot.item)
+			clean = await this.options.healthy(slot.item)
+		} catch {
+			// A tab that cannot be reset is discarded like any other drifted one.
+		}
+		if (clean) this.offer(slot)
+		else await this.discard(slot)
+	}
+
+	async close() {
+		const slots = [...this.idle.splice(0), ...this.borrowed.values()]
+		this.borrowed.clear()
+		await Promise.all(slots.map((slot) => this.options.destroy(slot.item).catch(() => {})))
+	}
+
+	/** Opens a tab and hands it to `place` before it stops counting as being created. */
+	private async spawn(place: (slot: Slot<T>) => void) {
+		this.creating++
+		try {
+			const item = await this.options.create()
+			this.stats.created++
+			place({ item, uses: 0 })
+		} finally {
+			this.creating--
+		}
+	}
+
+	/** Hands a clean tab to the longest waiting borrower, or parks it. */
+	private offer(slot: Slot<T>) {
+		const waiter = this.waiters.shift()
+		if (waiter) {
+			this.borrowed.set(slot.item, slot)
+			waiter.resolve(slot)
+		} else {
+			this.idle.push(slot)
+		}
+	}
+
+	private async discard(slot: Slot<T>) {
+		this.stats.discarded++
+		await this.options.destroy(slot.item).catch(() => {})
+		this.replenish()
+	}
+
+	/** Replaces a closed tab without making the returning test wait for it. */
+	private replenish() {
+		if (this.total >= this.options.size) return
+		this.spawn((slot) => this.offer(slot)).catch((e) => {
+			if (this.total === 0) this.waiters.splice(0).forEach((waiter) => waiter.reject(e))
+		})
+	}
+}
@@ -1,9 +1,75 @@
-import { Page } from '@playwright/test'
+import { APIRequestContext, Page } from '@playwright/test'
+import { LinkCheckOptions, LinkChecker, LinkResult } from './LinkChecker'
+
+export type LinkExtractionOptions = {
+	/** Query parameters removed before deduplication; `*` matches any suffix, e.g. `utm_*`. */
+	dropParams?: string[]
+	/** Also return asset URLs from img, source, link and script elements. */
+	assets?: boolean
+}
+
+export const TRACKING_PARAMS = ['utm_*', 'gclid', 'fbclid', 'msclkid', 'mc_cid', 'mc_eid', '_hsenc', '_hsmi', '__hstc', '__hssc', '__hsfp', 'hsCtaTracking']
+
+const ANCHORS = 'a[href]'
+const ASSETS = 'img[src], img[srcset], source[src], source[srcset], link[href], script[src]'
 
 export class PageUtils {
-	static async getAllLinks(page: Page): Promise<string[]> {
-		return page.$$eval('a[href]', (as) =>
-			as.map((a) => (a as HTMLAnchorElement).href)
+	/**
+	 * Returns the page's http(s) links, normalized and deduplicated in the
+	 * browser: fragments and tracking parameters are dropped, scheme and host
+	 * are lower-cased, and URLs differing only by a trailing slash count once.
+	 * The first spelling found is returned, so probes hit the URL as linked.
+	 */
+	static async getAllLinks(page: Page, options: LinkExtractionOptions = {}): Promise<string[]> {
+		const selector = options.assets ? `${ANCHORS}, ${ASSETS}` : ANCHORS
+		return page.$$eval(
+			selector,
+			(elements, dropParams) => {
+				const dropped = dropParams.map(
+					(param) => new RegExp(`^${param.replace(/[.+?^${}()|[\]\\]/g, '\\$&').replace(/\*/g, '.*')}$`)
+				)
+				const candidates: string[] = []
+				for (const element of elements) {
+					for (const attribute of ['href', 'src']) {
+						const value = element.getAttribute(attribute)
+						if (value) candidates.push(value)
+					}
+					const srcset = element.getAttribute('srcset')
+					if (srcset) {
+						for (const candidate of srcset.split(',')) {
+							const value = candidate.trim().split(/\s+/)[0]
+							if (value) candidates.push(value)
+						}
+					}
+				}
+				const links = new Map<string, string>()
+				for (const candidate of candidates) {
+					let url: URL
+					try {
+						url = new URL(candidate, document.baseURI)
+					} catch {
+						continue
+					}
+					if (url.protocol !== 'http:' && url.protocol !== 'https:') continue
+					url.hash = ''
+					for (const name of [...url.searchParams.keys()]) {
+						if (dropped.some((pattern) => pattern.test(name))) url.searchParams.delete(name)
+					}
+					const link = url.toString()
+					const key = link.replace(/\/(?=\?|$)/, '')
+					if (!links.has(key)) links.set(key, link)
+				}
+				return [...links.values()]
+			},
+			options.dropParams ?? TRACKING_PARAMS
 		)
 	}
-}
\ No newline at end of file
+
+	static async checkLinks(
+		request: APIRequestContext,
+		links: string[],
+		options?: LinkCheckOptions
+	): Promise<LinkResult[]> {
+		return new LinkChecker(request, options).check(links)
+	}
+}
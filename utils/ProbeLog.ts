@@ -0,0 +1,55 @@
+import { isTimeout } from './HostScheduler'
+
+export type ProbeSample = {
+	host: string
+	ms: number
+	/** `2xx`..`5xx`, `timeout` or `network`. */
+	outcome: string
+	/** Epoch ms when the probe finished. */
+	at: number
+}
+
+/** Name of the test attachment the latency reporter reads samples from. */
+export const PROBE_LOG_ATTACHMENT = 'probe-latency'
+
+function outcomeOf(status: number | undefined, error: unknown): string {
+	if (status !== undefined) return `${Math.floor(status / 100)}xx`
+	return isTimeout(error) ? 'timeout' : 'network'
+}
+
+/**
+ * ProbeLog
+ * Latency samples of every network probe issued in this worker since the
+ * last drain. The `probeLatency` fixture in fixtures/api.fixture.ts drains it
+ * into an attachment after each test.
+ */
+class ProbeLog {
+	private samples: ProbeSample[] = []
+
+	/** Times `probe` and records its outcome; `status` reads the HTTP status from its result. */
+	async time<T>(url: string, probe: () => Promise<T>, status: (result: T) => number): Promise<T> {
+		const started = performance.now()
+		let host: string
+		try {
+			host = new URL(url).host
+		} catch {
+			host = 'invalid'
+		}
+		try {
+			const result = await probe()
+			this.samples.push({ host, ms: performance.now() - started, outcome: outcomeOf(status(result), undefined), at: Date.now() })
+			return result
+		} catch (e) {
+			this.samples.push({ host, ms: performance.now() - started, outcome: outcomeOf(undefined, e), at: Date.now() })
+			throw e
+		}
+	}
+
+	drain(): ProbeSample[] {
+		const samples = this.samples
+		this.samples = []
+		return samples
+	}
+}
+
+export const probeLog = new ProbeLog()
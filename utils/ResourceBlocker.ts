@@ -0,0 +1,71 @@
+import { BrowserContext, Request, Route } from '@playwright/test'
+
+export type ResourceProfile = {
+	/** Playwright resource types to abort, e.g. `image` or `font`. */
+	resourceTypes: string[]
+	/** Hosts to abort, matched on the host itself or any subdomain. */
+	hosts: string[]
+}
+
+export const RESOURCE_PROFILES: Record<string, ResourceProfile> = require('../data/resourceProfiles.json')
+
+/**
+ * ResourceBlocker
+ * Aborts requests a DOM-only navigation does not need and counts them per
+ * reason, so specs can report how much traffic was skipped.
+ */
+export class ResourceBlocker {
+	readonly profile: ResourceProfile
+	readonly blocked = new Map<string, number>()
+	private readonly aborted = new WeakSet<Request>()
+
+	constructor(profile: ResourceProfile | string) {
+		if (typeof profile === 'string') {
+			if (!RESOURCE_PROFILES[profile]) throw new Error(`Unknown resource profile: ${profile}`)
+			this.profile = RESOURCE_PROFILES[profile]
+		} else {
+			this.profile = profile
+		}
+	}
+
+	async attach(context: BrowserContext) {
+		await context.route('**/*', (route) => this.handle(route))
+	}
+
+	/** Whether `request` was aborted by this blocker. */
+	isBlocked(request: Request): boolean {
+		return this.aborted.has(request)
+	}
+
+	get total(): number {
+		return [...this.blocked.values()].reduce((sum, count) => sum + count, 0)
+	}
+
+	summary(): string {
+		const reasons = [...this.blocked].map(([reason, count]) => `${reason} ${count}`)
+		return `${this.total} blocked` + (reasons.length ? ` (${reasons.join(', ')})` : '')
+	}
+
+	private async handle(route: Route) {
+		const request = route.request()
+		const reason = this.blockReason(request.resourceType(), request.url())
+		if (!reason) return route.fallback()
+		this.blocked.set(reason, (this.blocked.get(reason) ?? 0) + 1)
+		this.aborted.add(request)
+		await route.abort('blockedbyclient')
+	}
+
+	private blockReason(resourceType: string, url: string): string | undefined {
+		if (this.profile.resourceTypes.includes(resourceType)) return resourceType
+		let host: string
+		try {
+			host = new URL(url).hostname
+		} catch {
+			return undefined
+		}
+		if (this.profile.hosts.some((blocked) => host === blocked || host.endsWith(`.${blocked}`))) {
+			return 'third-party'
+		}
+		return undefined
+	}
+}
@@ -0,0 +1,99 @@
+import { setTimeout as sleep } from 'timers/promises'
+import { retryAfterMs } from './HostScheduler'
+
+/** Why a request may be retried. Other 4xx answers, including 404, are final. */
+export type RetryReason = 'network' | 'server' | 'throttled'
+
+export type RetryPolicyOptions = {
+	/** Retries allowed per request, by reason. */
+	maxRetries?: Partial<Record<RetryReason, number>>
+	baseDelayMs?: number
+	maxDelayMs?: number
+	/** Retries allowed per worker: `minBudget` plus this fraction of all requests. */
+	budgetRatio?: number
+	minBudget?: number
+}
+
+/** Counts the retries spent on one probe so callers can report them per URL. */
+export type RetryStats = { retries: number }
+
+/** 5xx answers that describe the request rather than the server's health; repeating them cannot help. */
+const FINAL_SERVER_STATUSES = [501, 505]
+
+export function retryReason(status?: number, error?: unknown): RetryReason | undefined {
+	if (error !== undefined) return 'network'
+	if (status === 429) return 'throttled'
+	if (status !== undefined && status >= 500 && !FINAL_SERVER_STATUSES.includes(status)) return 'server'
+	return undefined
+}
+
+/**
+ * RetryPolicy
+ * Retries single requests with full-jitter exponential backoff. A worker-wide
+ * budget keeps a struggling site from turning every probe into several.
+ */
+export class RetryPolicy {
+	private static instance: RetryPolicy | undefined
+
+	readonly maxRetries: Record<RetryReason, number>
+	readonly baseDelayMs: number
+	readonly maxDelayMs: number
+	readonly budgetRatio: number
+	readonly minBudget: number
+	private requests = 0
+	private retries = 0
+
+	constructor(options: RetryPolicyOptions = {}) {
+		this.maxRetries = { network: 3, server: 2, throttled: 2, ...options.maxRetries }
+		this.baseDelayMs = options.baseDelayMs ?? 250
+		this.maxDelayMs = options.maxDelayMs ?? 8000
+		this.budgetRatio = options.budgetRatio ?? 0.2
+		this.minBudget = options.minBudget ?? 10
+	}
+
+	static shared(): RetryPolicy {
+		return (RetryPolicy.instance ??= new RetryPolicy({
+			budgetRatio: Number(process.env.PROBE_RETRY_BUDGET_RATIO ?? 0.2)
+		}))
+	}
+
+	/**
+	 * Runs `attempt` until it succeeds, fails permanently or runs out of retries.
+	 * The last response is returned even if it is still a 5xx or 429; the last
+	 * network error is rethrown.
+	 */
+	async run<T extends { status(): number; headers(): Record<string, string>; dispose(): Promise<void> }>(
+		attempt: () => Promise<T>,
+		stats?: RetryStats
+	): Promise<T> {
+		for (let retry = 0; ; retry++) {
+			this.requests++
+			let result: T | undefined
+			let error: unknown
+			try {
+				result = await attempt()
+			} catch (e) {
+				error = e
+			}
+			const reason = retryReason(result?.status(), error)
+			if (!reason || retry >= this.maxRetries[reason] || !this.spend()) {
+				if (result) return result
+				throw error
+			}
+			if (stats) stats.retries++
+			const wait = Math.max(this.backoff(retry), retryAfterMs(result?.headers()['retry-after']) ?? 0)
+			await result?.dispose()
+			await sleep(wait)
+		}
+	}
+
+	private backoff(retry: number): number {
+		return Math.random() * Math.min(this.maxDelayMs, this.baseDelayMs * 2 ** retry)
+	}
+
+	private spend(): boolean {
+		if (this.retries >= this.minBudget + this.budgetRatio * this.requests) return false
+		this.retries++
+		return true
+	}
+}
@@ -0,0 +1,167 @@
+import { APIRequestContext, Page } from '@playwright/test'
+import { CrawlState } from './CrawlState'
+import { SitemapEntry } from './SitemapParser'
+import { RetryStats } from './RetryPolicy'
+import { rangedGet, scheduled, validators } from './UrlProbe'
+
+export type RobotsVerdict = {
+	url: string
+	status: number
+	noindex: boolean
+	/**
+	 * Where the noindex decision was read from; `unchanged` reuses the previous
+	 * run's verdict after a 304 or an unchanged sitemap `<lastmod>`.
+	 */
+	source: 'header' | 'meta' | 'browser' | 'none' | 'unchanged'
+	error?: string
+	/** Requests repeated by the retry policy. */
+	retries?: number
+}
+
+export type RobotsEvaluatorOptions = {
+	/** URL prefixes whose robots meta tag is only present after client-side rendering. */
+	clientRendered?: string[]
+	/**
+	 * Bytes of HTML requested; the robots meta tag lives in the document head.
+	 * Heads that run past this are read with a full GET.
+	 */
+	maxBodyBytes?: number
+	/** Persistent crawl state for conditional requests and lastmod skipping. */
+	crawlState?: CrawlState
+}
+
+const CLIENT_RENDERED: string[] = require('../data/clientRenderedPages.json')
+
+function hasNoindex(directives: string): boolean {
+	return /(^|[\s,:])(noindex|none)($|[\s,])/i.test(directives)
+}
+
+/** Whether `html` reaches the end of the document head, so every head meta tag in it has been seen. */
+function headEnded(html: string): boolean {
+	return /<\/head\s*>|<body[\s>]/i.test(html)
+}
+
+/** Reads the `content` of every `<meta name="robots">` tag in raw HTML. */
+export function robotsMetaContent(html: string): string[] {
+	const contents: string[] = []
+	for (const [tag] of html.matchAll(/<meta\b[^>]*>/gi)) {
+		if (!/\bname\s*=\s*["']?robots["'\s/>]/i.test(tag)) continue
+		const content = tag.match(/\bcontent\s*=\s*(?:"([^"]*)"|'([^']*)'|([^\s>]+))/i)
+		if (content) contents.push(content[1] ?? content[2] ?? content[3])
+	}
+	return contents
+}
+
+/**
+ * RobotsEvaluator
+ * Decides whether a URL is indexable from a single HTTP response: the
+ * `X-Robots-Tag` header and the robots meta tag in the raw HTML. A browser
+ * page is only opened for URLs listed as client-rendered, and used for one
+ * of them at a time.
+ */
+export class RobotsEvaluator {
+	readonly request: APIRequestContext
+	/** Opens the browser page on first call; absent when no browser is available. */
+	readonly page?: () => Promise<Page>
+	readonly clientRendered: string[]
+	readonly maxBodyBytes: number
+	readonly crawlState?: CrawlState
+	private browserQueue: Promise<unknown> = Promise.resolve()
+
+	constructor(request: APIRequestContext, page?: () => Promise<Page>, options: RobotsEvaluatorOptions = {}) {
+		this.request = request
+		this.page = page
+		this.clientRendered = options.clientRendered ?? CLIENT_RENDERED
+		this.maxBodyBytes = options.maxBodyBytes ?? 64 * 1024
+		this.crawlState = options.crawlState
+	}
+
+	isClientRendered(url: string): boolean {
+		return this.clientRendered.some((prefix) => url.startsWith(prefix))
+	}
+
+	/** Evaluates a sitemap entry, skipping it if its `<lastmod>` is unchanged since a recent check. */
+	async evaluateEntry(entry: SitemapEntry): Promise<RobotsVerdict> {
+		const known = this.crawlState?.unchanged(entry)
+		if (known) {
+			return { url: entry.loc, status: known.status, noindex: known.noindex ?? false, source: 'unchanged' }
+		}
+		return this.evaluate(entry.loc, entry.lastmod)
+	}
+
+	async evaluate(url: string, sitemapLastmod?: string): Promise<RobotsVerdict> {
+		const known = this.crawlState?.get(url)
+		let status: number
+		let html: string
+		let header: string
+		let cacheValidators: { etag?: string; lastModified?: string }
+		const stats: RetryStats = { retries: 0 }
+		try {
+			const resp = await rangedGet(this.request, url, {
+				headers: this.crawlState?.conditionalHeaders(url),
+				maxBodyBytes: this.maxBodyBytes,
+				stats
+			})
+			status = resp.status() === 206 ? 200 : resp.status()
+			cacheValidators = validators(resp.headers())
+			header = resp
+				.headersArray()
+				.filter(({ name }) => name.toLowerCase() === 'x-robots-tag')
+				.map(({ value }) => value)
+				.join(', ')
+			html = status === 304 ? '' : await resp.text()
+			await resp.dispose()
+			// The range ended inside the head, e.g. after large inline CSS; a later robots tag must still be read.
+			const cutInHead = resp.status() === 206 && !headEnded(html)
+			if (cutInHead && !hasNoindex(header) && !robotsMetaContent(html).some(hasNoindex)) {
+				const full = await scheduled(url, () => this.request.get(url), { stats })
+				html = await full.text()
+				await full.dispose()
+			}
+		} catch (e) {
+			return {
+				url,
+				status: 0,
+				noindex: false,
+				source: 'none',
+				retries: stats.retries,
+				error: e instanceof Error ? e.message : String(e)
+			}
+		}
+		let verdict: RobotsVerdict
+		if (status === 304 && known) {
+			verdict = { url, status: known.status, noindex: known.noindex ?? false, source: 'unchanged' }
+			cacheValidators = { etag: known.etag, lastModified: known.lastModified }
+		} else if (hasNoindex(header)) {
+			verdict = { url, status, noindex: true, source: 'header' }
+		} else if (robotsMetaContent(html).some(hasNoindex)) {
+			verdict = { url, status, noindex: true, source: 'meta' }
+		} else if (this.page && status < 400 && this.isClientRendered(url)) {
+			verdict = { url, status, noindex: await this.renderedNoindex(url), source: 'browser' }
+		} else {
+			verdict = { url, status, noindex: false, source: 'none' }
+		}
+		verdict.retries = stats.retries
+		this.crawlState?.record(url, {
+			status: verdict.status,
+			noindex: verdict.noindex,
+			sitemapLastmod,
+			...cacheValidators
+		})
+		return verdict
+	}
+
+	/** Navigations share one page, so they are serialized. */
+	private renderedNoindex(url: string): Promise<boolean> {
+		const run = this.browserQueue.then(async () => {
+			const page = await this.page!()
+			await page.goto(url, { waitUntil: 'domcontentloaded' })
+			const contents = await page.$$eval('meta[name="robots"]', (metas) =>
+				metas.map((meta) => meta.getAttribute('content') ?? '')
+			)
+			return contents.some(hasNoindex)
+		})
+		this.browserQueue = run.catch(() => undefined)
+		return run
+	}
+}
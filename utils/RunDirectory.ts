@@ -0,0 +1,23 @@
+import fs from 'fs'
+import path from 'path'
+
+/** Set by global setup to the directory of the current run. */
+export const RUN_DIR_ENV = 'TEST_RUN_DIR'
+export const RUNS_ROOT = path.join(__dirname, '..', '.cache', 'runs')
+
+/**
+ * Creates a fresh directory for state that must not outlive one run and
+ * exports it to the workers. Global setup removes it on teardown.
+ */
+export function createRunDir(): string {
+	fs.mkdirSync(RUNS_ROOT, { recursive: true })
+	const dir = fs.mkdtempSync(path.join(RUNS_ROOT, 'run-'))
+	process.env[RUN_DIR_ENV] = dir
+	return dir
+}
+
+/** Path of `name` inside the current run's directory, or undefined outside a run. */
+export function runFile(name: string): string | undefined {
+	const dir = process.env[RUN_DIR_ENV]
+	return dir ? path.join(dir, name) : undefined
+}
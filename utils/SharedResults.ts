@@ -0,0 +1,103 @@
+import crypto from 'crypto'
+import fs from 'fs'
+import path from 'path'
+import { setTimeout as sleep } from 'timers/promises'
+import type { TestInfo } from '@playwright/test'
+import { writeFileAtomic } from './AtomicFile'
+import { runFile } from './RunDirectory'
+
+/** How long a project waits for another project's result before computing its own. */
+export const SHARED_RESULT_WAIT_MS = Number(process.env.SHARED_RESULT_WAIT_MS ?? 120 * 1000)
+
+type SharedRecord<T> = { project: string; value?: T; failed?: boolean }
+
+export type Shared<T> = {
+	value: T
+	/** Project that computed the value, when it was not this one. */
+	sharedFrom?: string
+}
+
+/**
+ * SharedResults
+ * Run-scoped store for the results of browser-agnostic checks. The first
+ * project to reach a check claims it with an exclusive file create and
+ * computes it; the others wait for the result and reuse it. Results never
+ * outlive the run: they live in the run directory global setup creates and
+ * removes. Without a run directory every project computes its own result.
+ */
+export class SharedResults {
+	private static instance: SharedResults | undefined
+
+	readonly dir: string | undefined
+	readonly waitMs: number
+
+	constructor(dir: string | undefined = runFile('shared-results'), waitMs: number = SHARED_RESULT_WAIT_MS) {
+		this.dir = dir
+		if (dir) fs.mkdirSync(dir, { recursive: true })
+		this.waitMs = waitMs
+	}
+
+	static shared(): SharedResults {
+		return (SharedResults.instance ??= new SharedResults())
+	}
+
+	/**
+	 * Returns the result of `compute` for the check named `name` in the
+	 * current test, computing it only if no other project has claimed it.
+	 * A reused result is annotated on the test as "shared from <project>".
+	 * Retries and failed or missing results fall back to computing locally.
+	 */
+	async once<T>(testInfo: TestInfo, name: string, compute: () => Promise<T>): Promise<Shared<T>> {
+		if (!this.dir) return { value: await compute() }
+		const project = testInfo.project.name
+		const key = crypto
+			.createHash('sha1')
+			.update([...testInfo.titlePath, name].join('\u0000'))
+			.digest('hex')
+		const claimFile = path.join(this.dir, `${key}.claim`)
+		const resultFile = path.join(this.dir, `${key}.json`)
+
+		let claimed = false
+		try {
+			fs.writeFileSync(claimFile, project, { flag: 'wx' })
+			claimed = true
+		} catch (e) {
+			if ((e as NodeJS.ErrnoException).code !== 'EEXIST') throw e
+		}
+		if (!claimed) {
+			const owner = fs.readFileSync(claimFile, 'utf8')
+			// A retry in the claiming project re-checks instead of trusting its own earlier attempt.
+			const record = owner === project ? undefined : await this.waitFor<T>(resultFile)
+			if (record && !record.failed) {
+				testInfo.annotations.push({ type: 'shared', description: `${name} shared from ${record.project}` })
+				return { value: record.value as T, sharedFrom: record.project }
+			}
+			return { value: await compute() }
+		}
+
+		try {
+			const value = await compute()
+			this.write(resultFile, { project, value })
+			return { value }
+		} catch (e) {
+			this.write(resultFile, { project, failed: true })
+			throw e
+		}
+	}
+
+	private async waitFor<T>(file: string): Promise<SharedRecord<T> | undefined> {
+		const deadline = Date.now() + this.waitMs
+		for (let delay = 50; Date.now() < deadline; delay = Math.min(delay * 2, 1000)) {
+			try {
+				return JSON.parse(fs.readFileSync(file, 'utf8')) as SharedRecord<T>
+			} catch {
+				await sleep(delay)
+			}
+		}
+		return undefined
+	}
+
+	private write<T>(file: string, record: SharedRecord<T>) {
+		writeFileAtomic(file, JSON.stringify(record))
+	}
+}
@@ -0,0 +1,250 @@
+import { APIRequestContext, Page } from '@playwright/test'
+import { LinkChecker, LinkResult } from './LinkChecker'
+import { originalUrl } from './NetworkMode'
+import { PageUtils } from './PageUtils'
+import { StatusCache, normalizeUrl } from './StatusCache'
+import { HEAD_REJECTED, scheduled } from './UrlProbe'
+import { VisitedSet, VisitedSetOptions, createVisitedSet } from './VisitedSet'
+
+export type SiteCrawlerOptions = {
+	/** Pages deeper than this many links from a seed are checked but not expanded. */
+	maxDepth?: number
+	/** Upper bound on pages fetched and expanded. */
+	maxPages?: number
+	/** Origins whose pages are expanded; defaults to the seeds' origins. */
+	scope?: string[]
+	/** When set, only matching in-scope pages are expanded. */
+	include?: RegExp[]
+	/** Matching URLs are neither expanded nor checked. */
+	exclude?: RegExp[]
+	/** URL prefixes whose links only exist after client-side rendering. */
+	jsRendered?: string[]
+	/** Pages fetched at once; hosts are further limited by the HostScheduler. */
+	concurrency?: number
+	cache?: StatusCache
+	/** How seen URLs are tracked; defaults to 64-bit hashes. */
+	visited?: VisitedSetOptions
+}
+
+export type BrokenLink = {
+	url: string
+	status: number
+	error?: string
+	/**
+	 * Pages that link to the broken URL. Only the first referrer and those
+	 * found after the URL was known to be broken are kept, to bound memory.
+	 */
+	referrers: string[]
+}
+
+export type CrawlReport = {
+	pagesCrawled: number
+	linksChecked: number
+	broken: BrokenLink[]
+	durationMs: number
+	pagesPerMinute: number
+}
+
+type FrontierItem = { url: string; depth: number; referrer?: string }
+
+const JS_RENDERED: string[] = require('../data/clientRenderedPages.json')
+
+/** Extracts absolute http(s) `<a href>` targets from raw HTML, without fragments. */
+export function extractLinks(html: string, pageUrl: string): string[] {
+	const base = html.match(/<base\b[^>]*\bhref\s*=\s*["']([^"']+)["']/i)?.[1]
+	const baseUrl = base ? new URL(base, pageUrl).toString() : pageUrl
+	const links = new Set<string>()
+	for (const match of html.matchAll(/<a\b[^>]*?\bhref\s*=\s*(?:"([^"]*)"|'([^']*)'|([^\s>]+))/gi)) {
+		const href = (match[1] ?? match[2] ?? match[3]).replace(/&amp;/g, '&').trim()
+		try {
+			const url = new URL(href, baseUrl)
+			if (url.protocol !== 'http:' && url.protocol !== 'https:') continue
+			url.hash = ''
+			links.add(url.toString())
+		} catch {
+			// Malformed href; the browser would ignore it too.
+		}
+	}
+	return [...links]
+}
+
+/**
+ * SiteCrawler
+ * Breadth-first crawl from seed pages. In-scope pages are fetched and their
+ * links extracted from raw HTML, or through the browser for JS-rendered
+ * pages; every discovered link is then status-checked, and links answering
+ * 4xx/5xx or failing are reported with the pages that reference them.
+ */
+export class SiteCrawler {
+	readonly request: APIRequestContext
+	readonly page?: Page
+	readonly maxDepth: number
+	readonly maxPages: number
+	readonly include: RegExp[]
+	readonly exclude: RegExp[]
+	readonly jsRendered: string[]
+	readonly concurrency: number
+	readonly cache?: StatusCache
+	private scope: string[]
+	private readonly visited: VisitedSet
+	private readonly broken = new Map<string, BrokenLink>()
+	private browserQueue: Promise<unknown> = Promise.resolve()
+
+	constructor(request: APIRequestContext, page?: Page, options: SiteCrawlerOptions = {}) {
+		this.request = request
+		this.page = page
+		this.maxDepth = options.maxDepth ?? 3
+		this.maxPages = options.maxPages ?? 500
+		this.scope = options.scope ?? []
+		this.include = options.include ?? []
+		this.exclude = options.exclude ?? []
+		this.jsRendered = options.jsRendered ?? JS_RENDERED
+		this.concurrency = options.concurrency ?? 16
+		this.cache = options.cache
+		this.visited = createVisitedSet({ expected: this.maxPages * 50, ...options.visited })
+	}
+
+	/**
+	 * Crawls from `seeds`. Only broken links are kept in memory; everything
+	 * else is reduced to an entry in the visited set once it has been checked.
+	 */
+	async crawl(seeds: string[]): Promise<CrawlReport> {
+		const started = Date.now()
+		if (!this.scope.length) this.scope = [...new Set(seeds.map((seed) => new URL(seed).origin))]
+		const checker = new LinkChecker(this.request, { cache: this.cache })
+		let pendingChecks = 0
+		let checksDone = () => {}
+		// Link probes are only bounded by the per-host scheduler; a counter
+		// rather than a list of promises keeps memory flat on large crawls.
+		const check = (url: string, referrer?: string) => {
+			pendingChecks++
+			checker
+				.checkOne(url)
+				.then((result) => this.record(result, referrer))
+				.finally(() => {
+					if (--pendingChecks === 0) checksDone()
+				})
+		}
+		const frontier: FrontierItem[] = []
+		let head = 0
+		let pagesCrawled = 0
+		const enqueue = (url: string, depth: number, referrer?: string) => {
+			const key = normalizeUrl(url)
+			if (this.exclude.some((pattern) => pattern.test(key))) return
+			if (this.visited.has(key)) {
+				if (referrer) this.broken.get(key)?.referrers.push(referrer)
+				return
+			}
+			this.visited.add(key)
+			if (depth <= this.maxDepth && this.isExpandable(key)) {
+				frontier.push({ url: key, depth, referrer })
+			} else {
+				check(key, referrer)
+			}
+		}
+		seeds.forEach((seed) => enqueue(seed, 0))
+
+		let active = 0
+		await new Promise<void>((resolve) => {
+			const pump = () => {
+				while (active < this.concurrency && head < frontier.length && pagesCrawled < this.maxPages) {
+					const item = frontier[head++]
+					if (head > 1024 && head * 2 > frontier.length) {
+						frontier.splice(0, head)
+						head = 0
+					}
+					pagesCrawled++
+					active++
+					this.expand(item)
+						.then((links) => links.forEach((link) => enqueue(link, item.depth + 1, item.url)))
+						.finally(() => {
+							active--
+							pump()
+						})
+				}
+				if (active === 0) resolve()
+			}
+			pump()
+		})
+
+		// Pages left in the frontier by the page limit are still checked as links.
+		for (const item of frontier.slice(head)) check(item.url, item.referrer)
+		if (pendingChecks) await new Promise<void>((resolve) => (checksDone = resolve))
+		const durationMs = Date.now() - started
+		return {
+			pagesCrawled,
+			linksChecked: this.visited.size,
+			broken: [...this.broken.values()],
+			durationMs,
+			pagesPerMinute: Math.round((pagesCrawled / Math.max(durationMs, 1)) * 60000)
+		}
+	}
+
+	private record(result: LinkResult, referrer?: string) {
+		if (!result.error && result.status < 400) return
+		this.broken.set(result.url, {
+			url: result.url,
+			status: result.status,
+			error: result.error,
+			referrers: referrer ? [referrer] : []
+		})
+	}
+
+	private isExpandable(url: string): boolean {
+		let origin: string
+		try {
+			origin = new URL(url).origin
+		} catch {
+			return false
+		}
+		if (!this.scope.includes(origin)) return false
+		return !this.include.length || this.include.some((pattern) => pattern.test(url))
+	}
+
+	/**
+	 * Fetches one page, records its status and returns the links on it. A HEAD
+	 * request comes first, so PDFs, media and error pages are never downloaded.
+	 */
+	private async expand({ url, referrer }: FrontierItem): Promise<string[]> {
+		const started = Date.now()
+		try {
+			const head = await scheduled(url, () => this.request.head(url))
+			await head.dispose()
+			if (!HEAD_REJECTED.includes(head.status())) {
+				const isHtml = /html/i.test(head.headers()['content-type'] ?? '')
+				if (head.status() >= 400 || !isHtml) {
+					this.record({ url, status: head.status(), method: 'HEAD', durationMs: Date.now() - started }, referrer)
+					return []
+				}
+			}
+			const resp = await scheduled(url, () => this.request.get(url))
+			const status = resp.status()
+			// After redirects, e.g. /blog to /blog/, relative links resolve against the final URL.
+			const finalUrl = originalUrl(resp.url())
+			const html = /html/i.test(resp.headers()['content-type'] ?? '') ? await resp.text() : ''
+			await resp.dispose()
+			this.record({ url, status, method: 'GET', durationMs: Date.now() - started }, referrer)
+			if (status >= 400 || !html) return []
+			if (finalUrl !== url && !this.isExpandable(finalUrl)) return []
+			if (this.page && this.jsRendered.some((prefix) => finalUrl.startsWith(prefix))) {
+				return await this.renderedLinks(finalUrl)
+			}
+			return extractLinks(html, finalUrl)
+		} catch (e) {
+			const error = e instanceof Error ? e.message : String(e)
+			this.record({ url, status: 0, durationMs: Date.now() - started, error }, referrer)
+			return []
+		}
+	}
+
+	/** JS-rendered pages share one browser page, so they are serialized. */
+	private renderedLinks(url: string): Promise<string[]> {
+		const page = this.page!
+		const run = this.browserQueue.then(async () => {
+			await page.goto(url, { waitUntil: 'domcontentloaded' })
+			return (await PageUtils.getAllLinks(page)).filter((link) => /^https?:/.test(link))
+		})
+		this.browserQueue = run.catch(() => undefined)
+		return run
+	}
+}
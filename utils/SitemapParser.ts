@@ -0,0 +1,229 @@
+import { Readable } from 'stream'
+import type { ReadableStream as WebReadableStream } from 'stream/web'
+import { StringDecoder } from 'string_decoder'
+import zlib from 'zlib'
+import { resolveUrl } from './NetworkMode'
+
+export type SitemapEntry = {
+	loc: string
+	lastmod?: string
+	changefreq?: string
+	priority?: number
+}
+
+/** A `<url>` entry of a urlset, or a `<sitemap>` child of a sitemap index. */
+export type SitemapNode =
+	| { kind: 'url'; entry: SitemapEntry }
+	| { kind: 'sitemap'; loc: string; lastmod?: string }
+
+export type StreamSitemapOptions = {
+	/** Child sitemaps of an index fetched at the same time. */
+	concurrency?: number
+	/** Entries buffered ahead of the consumer before readers pause. */
+	highWaterMark?: number
+}
+
+const ENTITIES: Record<string, string> = { amp: '&', lt: '<', gt: '>', quot: '"', apos: "'" }
+
+function decodeEntities(text: string): string {
+	return text.replace(/&(#x[0-9a-f]+|#\d+|\w+);/gi, (match, name: string) => {
+		if (name[0] !== '#') return ENTITIES[name] ?? match
+		const code = name[1] === 'x' || name[1] === 'X' ? parseInt(name.slice(2), 16) : Number(name.slice(1))
+		return String.fromCodePoint(code)
+	})
+}
+
+/**
+ * Incrementally parses sitemap XML (urlset or sitemapindex) from text chunks,
+ * yielding each `<url>` or `<sitemap>` as soon as its closing tag is read.
+ * Only the unparsed tail of the input is held in memory.
+ */
+export async function* parseSitemap(
+	chunks: AsyncIterable<string> | Iterable<string>
+): AsyncGenerator<SitemapNode> {
+	let buffer = ''
+	let text = ''
+	let depth = 0
+	let entryDepth = 0
+	let field: Record<string, string> | undefined
+	for await (const chunk of chunks) {
+		buffer += chunk
+		let pos = 0
+		for (;;) {
+			const open = buffer.indexOf('<', pos)
+			if (open === -1) {
+				if (field) text += buffer.slice(pos)
+				pos = buffer.length
+				break
+			}
+			if (field) text += buffer.slice(pos, open)
+			pos = open
+			let close: number
+			if (buffer.startsWith('<![CDATA[', open)) {
+				close = buffer.indexOf(']]>', open)
+				if (close === -1) break
+				if (field) text += buffer.slice(open + 9, close)
+				pos = close + 3
+				continue
+			}
+			if (buffer.startsWith('<!--', open)) {
+				close = buffer.indexOf('-->', open)
+				if (close === -1) break
+				pos = close + 3
+				continue
+			}
+			close = buffer.indexOf('>', open)
+			if (close === -1) break
+			pos = close + 1
+			const tag = buffer.slice(open + 1, close)
+			if (tag[0] === '?' || tag[0] === '!' || tag.endsWith('/')) continue
+			const closing = tag[0] === '/'
+			// Namespace prefixes are dropped; nesting depth keeps extension
+			// elements such as <image:loc> from overwriting the entry's fields.
+			const name = tag
+				.slice(closing ? 1 : 0)
+				.split(/\s/, 1)[0]
+				.replace(/^.*:/, '')
+			if (!closing) {
+				depth++
+				if (!field && (name === 'url' || name === 'sitemap')) {
+					field = {}
+					entryDepth = depth
+				}
+				text = ''
+				continue
+			}
+			depth--
+			if (!field) continue
+			if (depth === entryDepth - 1) {
+				const { loc, lastmod, changefreq, priority } = field
+				field = undefined
+				if (!loc) continue
+				if (name === 'sitemap') {
+					yield { kind: 'sitemap', loc, lastmod }
+				} else {
+					const entry: SitemapEntry = { loc }
+					if (lastmod) entry.lastmod = lastmod
+					if (changefreq) entry.changefreq = changefreq
+					if (priority) entry.priority = Number(priority)
+					yield { kind: 'url', entry }
+				}
+			} else if (depth === entryDepth) {
+				field[name] = decodeEntities(text.trim())
+			}
+			text = ''
+		}
+		buffer = buffer.slice(pos)
+	}
+}
+
+/** Decodes a response body to text, gunzipping it when it starts with the gzip magic bytes. */
+async function* decodeBody(body: Readable): AsyncGenerator<string> {
+	const iterator = body[Symbol.asyncIterator]()
+	const first = await iterator.next()
+	if (first.done) return
+	const head = Buffer.from(first.value)
+	let source: AsyncIterable<Buffer> = (async function* () {
+		yield head
+		for (let next = await iterator.next(); !next.done; next = await iterator.next()) {
+			yield Buffer.from(next.value)
+		}
+	})()
+	if (head[0] === 0x1f && head[1] === 0x8b) {
+		const raw = Readable.from(source)
+		const gunzip = zlib.createGunzip()
+		raw.on('error', (e) => gunzip.destroy(e))
+		source = raw.pipe(gunzip)
+	}
+	const decoder = new StringDecoder('utf8')
+	for await (const chunk of source) yield decoder.write(chunk)
+	const tail = decoder.end()
+	if (tail) yield tail
+}
+
+async function openSitemap(url: string): Promise<AsyncIterable<string>> {
+	const resp = await fetch(resolveUrl(url))
+	if (!resp.ok || !resp.body) {
+		throw new Error(`Sitemap ${url} returned status ${resp.status}`)
+	}
+	return decodeBody(Readable.fromWeb(resp.body as unknown as WebReadableStream))
+}
+
+/**
+ * Streams every URL entry reachable from `url`. Sitemap index children
+ * (plain or `.xml.gz`) are fetched concurrently and their entries are
+ * interleaved as they arrive. Readers pause while `highWaterMark` entries
+ * are waiting for the consumer.
+ */
+export async function* streamSitemap(
+	url: string,
+	options: StreamSitemapOptions = {}
+): AsyncGenerator<SitemapEntry> {
+	const concurrency = options.concurrency ?? 4
+	const highWaterMark = options.highWaterMark ?? 1000
+	const ready: SitemapEntry[] = []
+	const toFetch = [url]
+	const seen = new Set(toFetch)
+	let active = 0
+	let closed = false
+	let failure: unknown
+	let wake: (() => void) | undefined
+	let drained: (() => void)[] = []
+
+	const notify = () => {
+		wake?.()
+		wake = undefined
+	}
+	const release = () => {
+		drained.forEach((resolve) => resolve())
+		drained = []
+	}
+	const read = async (sitemapUrl: string) => {
+		for await (const node of parseSitemap(await openSitemap(sitemapUrl))) {
+			if (closed) return
+			if (node.kind === 'sitemap') {
+				if (!seen.has(node.loc)) {
+					seen.add(node.loc)
+					toFetch.push(node.loc)
+					pump()
+				}
+				continue
+			}
+			ready.push(node.entry)
+			notify()
+			if (ready.length >= highWaterMark) {
+				await new Promise<void>((resolve) => drained.push(resolve))
+			}
+		}
+	}
+	const pump = () => {
+		while (!closed && active < concurrency && toFetch.length) {
+			const next = toFetch.shift()!
+			active++
+			read(next)
+				.catch((e) => (failure ??= e))
+				.finally(() => {
+					active--
+					pump()
+					notify()
+				})
+		}
+	}
+
+	pump()
+	try {
+		for (;;) {
+			if (failure) throw failure
+			if (ready.length) {
+				yield ready.shift()!
+				if (ready.length < highWaterMark / 2) release()
+				continue
+			}
+			if (active === 0 && toFetch.length === 0) return
+			await new Promise<void>((resolve) => (wake = resolve))
+		}
+	} finally {
+		closed = true
+		release()
+	}
+}
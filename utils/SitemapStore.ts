@@ -0,0 +1,63 @@
+import fs from 'fs'
+import { createFileAtomic, writeFileAtomic } from './AtomicFile'
+import { modeCacheFile } from './NetworkMode'
+import { runFile } from './RunDirectory'
+import { SitemapEntry, streamSitemap } from './SitemapParser'
+
+export const SITEMAP_URL = process.env.SITEMAP_URL ?? 'https://www.netlify.com/sitemap.xml'
+export const SITEMAP_CACHE_FILE =
+	process.env.SITEMAP_CACHE_FILE ?? modeCacheFile('sitemap.json')
+export const SITEMAP_TTL_MS = Number(process.env.SITEMAP_TTL_MS ?? 60 * 60 * 1000)
+
+type SitemapSnapshot = {
+	url: string
+	fetchedAt: number
+	entries: SitemapEntry[]
+}
+
+function readSnapshot(url: string, file: string, ttlMs: number): SitemapSnapshot | undefined {
+	try {
+		const snapshot = JSON.parse(fs.readFileSync(file, 'utf8')) as SitemapSnapshot
+		if (snapshot.url === url && Date.now() - snapshot.fetchedAt <= ttlMs) return snapshot
+	} catch {
+		// Missing or unreadable snapshot; fetch a new one.
+	}
+	return undefined
+}
+
+/**
+ * Returns the parsed sitemap, fetching it only when the snapshot on disk is
+ * missing, was taken for another URL or is older than the TTL.
+ */
+export async function loadSitemap(
+	url: string = SITEMAP_URL,
+	file: string = SITEMAP_CACHE_FILE,
+	ttlMs: number = SITEMAP_TTL_MS
+): Promise<SitemapEntry[]> {
+	const cached = readSnapshot(url, file, ttlMs)
+	if (cached) return cached.entries
+	const entries: SitemapEntry[] = []
+	for await (const entry of streamSitemap(url)) entries.push(entry)
+	const snapshot: SitemapSnapshot = { url, fetchedAt: Date.now(), entries }
+	writeFileAtomic(file, JSON.stringify(snapshot))
+	return entries
+}
+
+/**
+ * Returns the sitemap pinned for the current run. Global setup pins it in the
+ * run directory, so every worker shards the same list even if the snapshot
+ * on disk expires mid-run; the TTL is not checked again. If setup could not
+ * pin one, the first worker to load a sitemap pins its copy for the others.
+ */
+export async function runSitemap(load: () => Promise<SitemapEntry[]> = () => loadSitemap()): Promise<SitemapEntry[]> {
+	const file = runFile('sitemap.json')
+	if (!file) return load()
+	try {
+		return JSON.parse(fs.readFileSync(file, 'utf8')) as SitemapEntry[]
+	} catch {
+		// Not pinned yet.
+	}
+	const entries = await load()
+	if (createFileAtomic(file, JSON.stringify(entries))) return entries
+	return JSON.parse(fs.readFileSync(file, 'utf8')) as SitemapEntry[]
+}
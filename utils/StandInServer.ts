@@ -0,0 +1,190 @@
+import fs from 'fs'
+import http from 'http'
+import { AddressInfo } from 'net'
+import path from 'path'
+
+export type StandInMode = 'record' | 'replay'
+
+type HarHeader = { name: string; value: string }
+
+type HarEntry = {
+	startedDateTime: string
+	time: number
+	request: { method: string; url: string; httpVersion: string; headers: HarHeader[]; queryString: []; cookies: []; headersSize: number; bodySize: number }
+	response: {
+		status: number
+		statusText: string
+		httpVersion: string
+		headers: HarHeader[]
+		cookies: []
+		content: { size: number; mimeType: string; text: string; encoding: 'base64' }
+		redirectURL: string
+		headersSize: number
+		bodySize: number
+	}
+	cache: {}
+	timings: { send: number; wait: number; receive: number }
+}
+
+/** Headers that describe the transfer rather than the resource; Node fetch already decoded the body. */
+const HOP_HEADERS = ['connection', 'content-encoding', 'content-length', 'keep-alive', 'transfer-encoding']
+
+/** Request headers that change the answer for the same URL, so they are part of a recording's key. */
+const VARYING_HEADERS = ['range', 'if-none-match', 'if-modified-since']
+
+/** Identifies a recording by method, URL and the varying request headers it was sent with. */
+function recordingKey(method: string, url: string, header: (name: string) => string | undefined): string {
+	const varying = VARYING_HEADERS.flatMap((name) => {
+		const value = header(name)
+		return value === undefined ? [] : [`${name}: ${value}`]
+	})
+	return [`${method} ${url}`, ...varying].join(' | ')
+}
+
+/**
+ * Maps `https://host/path` to `<origin>/https/host/path` so clients can
+ * reach any recorded origin through the one local server.
+ */
+export function toStandInUrl(origin: string, url: string): string {
+	const parsed = new URL(url)
+	if (parsed.origin === origin) return url
+	return `${origin}/${parsed.protocol.slice(0, -1)}/${parsed.host}${parsed.pathname}${parsed.search}`
+}
+
+export function fromStandInPath(requestPath: string): string | undefined {
+	const match = requestPath.match(/^\/(https?)\/([^/]+)(\/.*)?$/)
+	return match ? `${match[1]}://${match[2]}${match[3] ?? '/'}` : undefined
+}
+
+/**
+ * StandInServer
+ * Local HTTP stand-in for the live origins used by API requests. In record
+ * mode it forwards each request to the real origin and archives the response
+ * as a HAR entry; in replay mode it answers from that archive only and drops
+ * the connection for anything that was never recorded.
+ */
+export class StandInServer {
+	readonly mode: StandInMode
+	readonly harFile: string
+	origin = ''
+	private readonly entries = new Map<string, HarEntry>()
+	private server?: http.Server
+
+	constructor(mode: StandInMode, harFile: string) {
+		this.mode = mode
+		this.harFile = harFile
+		if (mode === 'replay') {
+			if (!fs.existsSync(harFile)) {
+				throw new Error(`No archive at ${harFile}; run once with NETWORK_MODE=record`)
+			}
+			const har = JSON.parse(fs.readFileSync(harFile, 'utf8')) as { log: { entries: HarEntry[] } }
+			for (const entry of har.log.entries) {
+				const { method, url, headers } = entry.request
+				const key = recordingKey(method, url, (name) => headers.find((h) => h.name.toLowerCase() === name)?.value)
+				this.entries.set(key, entry)
+			}
+		}
+	}
+
+	async start(): Promise<string> {
+		this.server = http.createServer((req, res) => {
+			this.handle(req, res).catch((e) => {
+				console.warn(`Stand-in failed for ${req.url}: ${e instanceof Error ? e.message : e}`)
+				res.destroy()
+			})
+		})
+		await new Promise<void>((resolve) => this.server!.listen(0, '127.0.0.1', resolve))
+		this.origin = `http://127.0.0.1:${(this.server.address() as AddressInfo).port}`
+		return this.origin
+	}
+
+	async stop() {
+		await new Promise((resolve) => this.server?.close(resolve))
+		if (this.mode === 'record') {
+			fs.mkdirSync(path.dirname(this.harFile), { recursive: true })
+			const har = {
+				log: { version: '1.2', creator: { name: 'stand-in', version: '1.0' }, entries: [...this.entries.values()] }
+			}
+			fs.writeFileSync(this.harFile, JSON.stringify(har, null, 1))
+		}
+	}
+
+	private async handle(req: http.IncomingMessage, res: http.ServerResponse) {
+		const url = fromStandInPath(req.url ?? '')
+		const method = req.method ?? 'GET'
+		if (!url) {
+			res.statusCode = 400
+			res.end()
+			return
+		}
+		const key = recordingKey(method, url, (name) => {
+			const value = req.headers[name]
+			return Array.isArray(value) ? value.join(', ') : value
+		})
+		let entry = this.entries.get(key)
+		if (!entry && this.mode === 'record') {
+			entry = await this.forward(method, url, req.headers)
+			this.entries.set(key, entry)
+		}
+		if (!entry) {
+			console.warn(`Stand-in has no recording for ${key}`)
+			res.destroy()
+			return
+		}
+		res.statusCode = entry.response.status
+		for (const { name, value } of entry.response.headers) {
+			if (name.toLowerCase() === 'location') {
+				res.setHeader(name, toStandInUrl(this.origin, new URL(value, url).toString()))
+			} else {
+				res.appendHeader(name, value)
+			}
+		}
+		res.end(Buffer.from(entry.response.content.text, 'base64'))
+	}
+
+	private async forward(method: string, url: string, incoming: http.IncomingHttpHeaders): Promise<HarEntry> {
+		const headers: Record<string, string> = {}
+		for (const [name, value] of Object.entries(incoming)) {
+			if (name !== 'host' && name !== 'accept-encoding' && !HOP_HEADERS.includes(name) && typeof value === 'string') headers[name] = value
+		}
+		const started = Date.now()
+		const resp = await fetch(url, { method, headers, redirect: 'manual' })
+		const body = Buffer.from(await resp.arrayBuffer())
+		const responseHeaders: HarHeader[] = []
+		resp.headers.forEach((value, name) => {
+			if (!HOP_HEADERS.includes(name)) responseHeaders.push({ name, value })
+		})
+		return {
+			startedDateTime: new Date(started).toISOString(),
+			time: Date.now() - started,
+			request: {
+				method,
+				url,
+				httpVersion: 'HTTP/1.1',
+				headers: Object.entries(headers).map(([name, value]) => ({ name, value })),
+				queryString: [],
+				cookies: [],
+				headersSize: -1,
+				bodySize: 0
+			},
+			response: {
+				status: resp.status,
+				statusText: resp.statusText,
+				httpVersion: 'HTTP/1.1',
+				headers: responseHeaders,
+				cookies: [],
+				content: {
+					size: body.length,
+					mimeType: resp.headers.get('content-type') ?? '',
+					text: body.toString('base64'),
+					encoding: 'base64'
+				},
+				redirectURL: resp.headers.get('location') ?? '',
+				headersSize: -1,
+				bodySize: body.length
+			},
+			cache: {},
+			timings: { send: 0, wait: Date.now() - started, receive: 0 }
+		}
+	}
+}
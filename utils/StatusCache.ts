@@ -0,0 +1,69 @@
+import { AppendOnlyLog } from './AppendOnlyLog'
+import { retryReason } from './RetryPolicy'
+import { runFile } from './RunDirectory'
+
+export type StatusEntry = {
+	url: string
+	status: number
+	checkedAt: number
+}
+
+export const STATUS_CACHE_FILE_NAME = 'link-status.jsonl'
+
+/**
+ * Normalizes a URL into a cache key: lower-cased host, no fragment,
+ * no default port.
+ */
+export function normalizeUrl(url: string): string {
+	try {
+		const parsed = new URL(url)
+		parsed.hash = ''
+		return parsed.toString()
+	} catch {
+		return url
+	}
+}
+
+/**
+ * StatusCache
+ * URL status cache shared by every worker of one run, so each link is probed
+ * once per run. Entries are appended to a JSON-lines file in the run
+ * directory, and each worker picks up lines written by other workers before
+ * answering a lookup. The file goes away with the run, so a re-run always
+ * sees the site as it is now. Outside a run the cache is per process.
+ */
+export class StatusCache {
+	private static instance: StatusCache | undefined
+
+	private readonly entries = new Map<string, StatusEntry>()
+	private readonly log?: AppendOnlyLog<StatusEntry>
+
+	constructor(file: string | undefined = runFile(STATUS_CACHE_FILE_NAME)) {
+		if (!file) return
+		this.log = new AppendOnlyLog<StatusEntry>(file, (entry) => {
+			const known = this.entries.get(entry.url)
+			if (!known || known.checkedAt < entry.checkedAt) this.entries.set(entry.url, entry)
+		})
+	}
+
+	/** One cache per worker process, backed by the run's file. */
+	static shared(): StatusCache {
+		return (StatusCache.instance ??= new StatusCache())
+	}
+
+	get(url: string): StatusEntry | undefined {
+		this.log?.sync()
+		return this.entries.get(normalizeUrl(url))
+	}
+
+	/**
+	 * Stores a definitive status. 429 and retryable 5xx answers describe the
+	 * moment rather than the link, so they are not shared.
+	 */
+	set(url: string, status: number) {
+		if (retryReason(status)) return
+		const entry = { url: normalizeUrl(url), status, checkedAt: Date.now() }
+		this.entries.set(entry.url, entry)
+		this.log?.append(entry)
+	}
+}
@@ -0,0 +1,62 @@
+import fs from 'fs'
+import path from 'path'
+import { writeFileAtomic } from './AtomicFile'
+
+/** Last observed duration in ms of each test, keyed by `timingKey`, per project. */
+export type TestTimings = Record<string, Record<string, number>>
+
+export const TEST_TIMINGS_FILE =
+	process.env.TEST_TIMINGS_FILE ?? path.join(__dirname, '..', '.cache', 'test-timings.json')
+
+/**
+ * `0` keeps tests in declaration order. playwright.config.ts sets it for
+ * `--shard` runs, which hand each machine a contiguous run of tests in
+ * declaration order; sorted longest first, the slow tests would all land
+ * on the first shard.
+ */
+export const ORDER_BY_TIMINGS = process.env.ORDER_BY_TIMINGS !== '0'
+
+const ROOT_DIR = path.join(__dirname, '..')
+
+/**
+ * Identifies a test across files: its spec file relative to the repository
+ * root, then its describe titles and its own title.
+ */
+export function timingKey(file: string, ...titles: string[]): string {
+	return [path.relative(ROOT_DIR, file).split(path.sep).join('/'), ...titles].join(' › ')
+}
+
+export function loadTimings(file: string = TEST_TIMINGS_FILE): TestTimings {
+	try {
+		return JSON.parse(fs.readFileSync(file, 'utf8')) as TestTimings
+	} catch {
+		return {}
+	}
+}
+
+export function saveTimings(timings: TestTimings, file: string = TEST_TIMINGS_FILE) {
+	writeFileAtomic(file, JSON.stringify(timings, null, 1))
+}
+
+/**
+ * Expected wall time of a test summed over every project that runs it.
+ * Tests without history get the median of the known ones, so a new test
+ * is neither scheduled first nor left to the end.
+ */
+export function expectedDurations(keys: string[], timings: TestTimings = loadTimings()): Map<string, number> {
+	const recorded = keys.map((key) => Object.values(timings[key] ?? {}).reduce((sum, ms) => sum + ms, 0))
+	const known = recorded.filter((ms) => ms > 0).sort((a, b) => a - b)
+	const fallback = known.length ? known[Math.floor(known.length / 2)] : 1
+	return new Map(keys.map((key, i) => [key, recorded[i] || fallback]))
+}
+
+/**
+ * Orders tests longest expected first. Workers take tests in declaration
+ * order, so the long ones start first and the short ones fill in at the end.
+ * Returns `keys` unchanged unless ORDER_BY_TIMINGS is on.
+ */
+export function longestFirst(keys: string[], timings: TestTimings = loadTimings()): string[] {
+	if (!ORDER_BY_TIMINGS) return keys
+	const durations = expectedDurations(keys, timings)
+	return [...keys].sort((a, b) => durations.get(b)! - durations.get(a)!)
+}
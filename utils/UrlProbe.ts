@@ -0,0 +1,114 @@
+import { APIRequestContext, APIResponse } from '@playwright/test'
+import { HostScheduler } from './HostScheduler'
+import { probeLog } from './ProbeLog'
+import { RetryPolicy, RetryStats } from './RetryPolicy'
+
+export type ProbeMode = 'get' | 'head-first'
+
+export type ProbeOptions = {
+	/** `head-first` sends HEAD and only falls back to GET when HEAD is rejected. */
+	mode?: ProbeMode
+	/** Upper bound on body bytes requested by a GET probe. */
+	maxBodyBytes?: number
+	/** Extra request headers, e.g. conditional headers from CrawlState. */
+	headers?: Record<string, string>
+	/** Per-origin concurrency control; defaults to the worker's shared scheduler. */
+	scheduler?: HostScheduler
+	/** Per-request retries; defaults to the worker's shared policy. */
+	retry?: RetryPolicy
+}
+
+export type ProbeResult = {
+	status: number
+	method: 'HEAD' | 'GET'
+	/** Body bytes transferred, as reported by the response's content-length. */
+	bytes: number
+	etag?: string
+	lastModified?: string
+	/** Requests repeated after network errors, 5xx or 429 answers. */
+	retries: number
+}
+
+export const DEFAULT_PROBE_MODE = (process.env.LINK_PROBE_MODE ?? 'head-first') as ProbeMode
+export const DEFAULT_MAX_BODY_BYTES = Number(process.env.LINK_PROBE_MAX_BYTES ?? 16 * 1024)
+
+/** Statuses that mean the server does not support HEAD for this resource. */
+export const HEAD_REJECTED = [405, 501]
+
+/**
+ * Reads the status of `url` without downloading the full body.
+ *
+ * APIRequestContext buffers whole responses, so a GET probe asks for the
+ * first `maxBodyBytes` through a Range header rather than cutting the stream.
+ * A 206 answer is reported as 200 since only the resource's existence matters.
+ */
+export async function probeUrl(
+	request: APIRequestContext,
+	url: string,
+	options: ProbeOptions = {}
+): Promise<ProbeResult> {
+	const mode = options.mode ?? DEFAULT_PROBE_MODE
+	const headers = options.headers ?? {}
+	const stats: RetryStats = { retries: 0 }
+	const send = (fn: () => Promise<APIResponse>) => scheduled(url, fn, { scheduler: options.scheduler, retry: options.retry, stats })
+	if (mode === 'head-first') {
+		const resp = await send(() => request.head(url, { headers }))
+		if (!HEAD_REJECTED.includes(resp.status())) {
+			return { status: resp.status(), method: 'HEAD', bytes: 0, retries: stats.retries, ...validators(resp.headers()) }
+		}
+	}
+	const resp = await rangedGet(request, url, { ...options, headers, stats })
+	const status = resp.status() === 206 ? 200 : resp.status()
+	const bytes = Number(resp.headers()['content-length'] ?? 0)
+	await resp.dispose()
+	return { status, method: 'GET', bytes, retries: stats.retries, ...validators(resp.headers()) }
+}
+
+/**
+ * GETs at most the first `maxBodyBytes` of `url` through the scheduler and
+ * retry policy. Empty resources cannot satisfy any range, so a 416 is asked
+ * again without one. Callers map 206 to 200 and dispose the response.
+ */
+export async function rangedGet(
+	request: APIRequestContext,
+	url: string,
+	options: ProbeOptions & { stats?: RetryStats } = {}
+): Promise<APIResponse> {
+	const headers = options.headers ?? {}
+	const maxBodyBytes = options.maxBodyBytes ?? DEFAULT_MAX_BODY_BYTES
+	const send = (fn: () => Promise<APIResponse>) => scheduled(url, fn, options)
+	const resp = await send(() =>
+		request.get(url, {
+			headers: { ...headers, Range: `bytes=0-${maxBodyBytes - 1}` }
+		})
+	)
+	if (resp.status() !== 416) return resp
+	await resp.dispose()
+	return send(() => request.get(url, { headers }))
+}
+
+/** Cache validators a later run can send back as conditional headers. */
+export function validators(headers: Record<string, string>): { etag?: string; lastModified?: string } {
+	return { etag: headers['etag'], lastModified: headers['last-modified'] }
+}
+
+/**
+ * Sends one request under the per-origin AIMD limit and retry policy, and
+ * logs the latency of each attempt, excluding time spent waiting for a slot.
+ * Each retry takes a new slot, so backoff never holds one.
+ */
+export function scheduled(
+	url: string,
+	send: () => Promise<APIResponse>,
+	options: { scheduler?: HostScheduler; retry?: RetryPolicy; stats?: RetryStats } = {}
+): Promise<APIResponse> {
+	const scheduler = options.scheduler ?? HostScheduler.shared()
+	const retry = options.retry ?? RetryPolicy.shared()
+	const attempt = () =>
+		scheduler.run(
+			url,
+			() => probeLog.time(url, send, (resp) => resp.status()),
+			(resp) => ({ status: resp.status(), retryAfter: resp.headers()['retry-after'] })
+		)
+	return retry.run(attempt, options.stats)
+}
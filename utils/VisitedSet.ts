@@ -0,0 +1,170 @@
+import { normalizeUrl } from './StatusCache'
+
+/** Set of URLs a crawl has already seen. Implementations may not be iterable. */
+export interface VisitedSet {
+	readonly size: number
+	has(url: string): boolean
+	add(url: string): void
+}
+
+export type VisitedSetMode = 'exact' | 'hashed' | 'bloom'
+
+export type VisitedSetOptions = {
+	/** `exact` keeps strings, `hashed` keeps 64-bit hashes, `bloom` keeps a Bloom filter. */
+	mode?: VisitedSetMode
+	/** Expected number of URLs; sizes the Bloom filter and the initial hash table. */
+	expected?: number
+	/** Bloom filter false-positive rate at `expected` URLs. */
+	falsePositiveRate?: number
+}
+
+/** 32-bit MurmurHash3 of a string's UTF-16 code units. */
+export function hash32(text: string, seed: number): number {
+	let h = seed >>> 0
+	for (let i = 0; i < text.length; i++) {
+		let k = Math.imul(text.charCodeAt(i), 0xcc9e2d51)
+		k = Math.imul((k << 15) | (k >>> 17), 0x1b873593)
+		h ^= k
+		h = Math.imul((h << 13) | (h >>> 19), 5) + 0xe6546b64
+	}
+	h ^= text.length
+	h = Math.imul(h ^ (h >>> 16), 0x85ebca6b)
+	h = Math.imul(h ^ (h >>> 13), 0xc2b2ae35)
+	return (h ^ (h >>> 16)) >>> 0
+}
+
+class ExactVisitedSet implements VisitedSet {
+	private readonly urls = new Set<string>()
+
+	get size() {
+		return this.urls.size
+	}
+
+	has(url: string) {
+		return this.urls.has(url)
+	}
+
+	add(url: string) {
+		this.urls.add(url)
+	}
+}
+
+/**
+ * Open-addressing table of 64-bit URL hashes held in two Uint32Arrays, about
+ * 8 bytes per slot instead of a string per URL. A collision would need two
+ * URLs to share both 32-bit halves, which is negligible at crawl sizes.
+ */
+export class HashedVisitedSet implements VisitedSet {
+	size = 0
+	private high: Uint32Array
+	private low: Uint32Array
+	private mask: number
+
+	constructor(expected = 1024) {
+		const capacity = 2 ** Math.ceil(Math.log2(Math.max(16, expected * 2)))
+		this.high = new Uint32Array(capacity)
+		this.low = new Uint32Array(capacity)
+		this.mask = capacity - 1
+	}
+
+	has(url: string): boolean {
+		const [high, low] = this.hash(url)
+		return this.find(high, low) >= 0
+	}
+
+	add(url: string) {
+		const [high, low] = this.hash(url)
+		if (this.find(high, low) >= 0) return
+		if ((this.size + 1) * 4 > this.high.length * 3) this.grow()
+		this.insert(high, low)
+		this.size++
+	}
+
+	/** Slot 0/0 marks an empty slot, so a hash of exactly 0/0 is bumped to 0/1. */
+	private hash(url: string): [number, number] {
+		const high = hash32(url, 0x9747b28c)
+		const low = hash32(url, 0x5bd1e995)
+		return [high, high === 0 && low === 0 ? 1 : low]
+	}
+
+	private find(high: number, low: number): number {
+		for (let slot = low & this.mask; ; slot = (slot + 1) & this.mask) {
+			if (this.high[slot] === 0 && this.low[slot] === 0) return -1
+			if (this.high[slot] === high && this.low[slot] === low) return slot
+		}
+	}
+
+	private insert(high: number, low: number) {
+		let slot = low & this.mask
+		while (this.high[slot] !== 0 || this.low[slot] !== 0) slot = (slot + 1) & this.mask
+		this.high[slot] = high
+		this.low[slot] = low
+	}
+
+	private grow() {
+		const { high, low } = this
+		this.high = new Uint32Array(high.length * 2)
+		this.low = new Uint32Array(low.length * 2)
+		this.mask = this.high.length - 1
+		for (let slot = 0; slot < high.length; slot++) {
+			if (high[slot] !== 0 || low[slot] !== 0) this.insert(high[slot], low[slot])
+		}
+	}
+}
+
+/**
+ * Bloom filter sized for `expected` URLs at the given false-positive rate.
+ * `has` may wrongly report an unseen URL, so a crawl using it can skip a
+ * small share of URLs; memory is fixed at about 1.2 bytes per URL at 1%.
+ */
+export class BloomVisitedSet implements VisitedSet {
+	/** URLs added that were not already reported as present; slightly low once false positives occur. */
+	size = 0
+	readonly bits: number
+	readonly hashes: number
+	private readonly words: Uint32Array
+
+	constructor(expected = 100000, falsePositiveRate = 0.01) {
+		this.bits = Math.max(64, Math.ceil((-expected * Math.log(falsePositiveRate)) / Math.LN2 ** 2))
+		this.hashes = Math.max(1, Math.round((this.bits / expected) * Math.LN2))
+		this.words = new Uint32Array(Math.ceil(this.bits / 32))
+	}
+
+	has(url: string): boolean {
+		const [a, b] = [hash32(url, 0x9747b28c), hash32(url, 0x5bd1e995)]
+		for (let i = 0; i < this.hashes; i++) {
+			const bit = (a + Math.imul(i, b)) >>> 0
+			const index = bit % this.bits
+			if ((this.words[index >>> 5] & (1 << (index & 31))) === 0) return false
+		}
+		return true
+	}
+
+	add(url: string) {
+		if (this.has(url)) return
+		const [a, b] = [hash32(url, 0x9747b28c), hash32(url, 0x5bd1e995)]
+		for (let i = 0; i < this.hashes; i++) {
+			const index = ((a + Math.imul(i, b)) >>> 0) % this.bits
+			this.words[index >>> 5] |= 1 << (index & 31)
+		}
+		this.size++
+	}
+}
+
+/** Creates a visited set; URLs are normalized before hashing. */
+export function createVisitedSet(options: VisitedSetOptions = {}): VisitedSet {
+	const expected = options.expected ?? 100000
+	const set: VisitedSet =
+		options.mode === 'exact'
+			? new ExactVisitedSet()
+			: options.mode === 'bloom'
+				? new BloomVisitedSet(expected, options.falsePositiveRate)
+				: new HashedVisitedSet(Math.min(expected, 1 << 16))
+	return {
+		get size() {
+			return set.size
+		},
+		has: (url) => set.has(normalizeUrl(url)),
+		add: (url) => set.add(normalizeUrl(url))
+	}
+}
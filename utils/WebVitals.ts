@@ -0,0 +1,110 @@
+import { BrowserContext } from '@playwright/test'
+
+export type WebVitalsSnapshot = {
+	url: string
+	/** `performance.timeOrigin` of the document, identifying one navigation. */
+	timeOrigin: number
+	ttfb?: number
+	fcp?: number
+	lcp?: number
+	cls: number
+	inp?: number
+	longTasks: number
+	longTaskMs: number
+}
+
+export type WebVitalsBudget = Partial<Record<'ttfb' | 'fcp' | 'lcp' | 'cls' | 'inp' | 'longTaskMs', number>>
+
+export const WEB_VITALS_BUDGETS: Record<string, WebVitalsBudget> = require('../data/webVitalsBudgets.json')
+
+/**
+ * Runs in every document before its own scripts. Reports the current metrics
+ * through the exposed binding whenever an observer fires, so values survive
+ * the next navigation. CLS is the plain sum of shifts without recent input
+ * and INP the longest interaction, which is enough for budget gates.
+ */
+function observeWebVitals() {
+	const w = window as any
+	if (window.top !== window || w.__webVitalsInstalled) return
+	w.__webVitalsInstalled = true
+	const vitals: Record<string, number> = { cls: 0, longTasks: 0, longTaskMs: 0 }
+	let queued = false
+	const report = () => {
+		if (queued) return
+		queued = true
+		setTimeout(() => {
+			queued = false
+			w.__reportWebVitals?.({ url: location.href, timeOrigin: performance.timeOrigin, ...vitals })
+		}, 0)
+	}
+	const observe = (type: string, callback: (entries: any[]) => void, options: object = {}) => {
+		if (!PerformanceObserver.supportedEntryTypes?.includes(type)) return
+		new PerformanceObserver((list) => {
+			callback(list.getEntries())
+			report()
+		}).observe({ type, buffered: true, ...options })
+	}
+	observe('navigation', (entries) => (vitals.ttfb = entries[0].responseStart))
+	observe('paint', (entries) => {
+		for (const entry of entries) if (entry.name === 'first-contentful-paint') vitals.fcp = entry.startTime
+	})
+	observe('largest-contentful-paint', (entries) => (vitals.lcp = entries[entries.length - 1].startTime))
+	observe('layout-shift', (entries) => {
+		for (const entry of entries) if (!entry.hadRecentInput) vitals.cls += entry.value
+	})
+	observe(
+		'event',
+		(entries) => {
+			for (const entry of entries) {
+				if (entry.interactionId) vitals.inp = Math.max(vitals.inp ?? 0, entry.duration)
+			}
+		},
+		{ durationThreshold: 40 }
+	)
+	observe('longtask', (entries) => {
+		for (const entry of entries) {
+			vitals.longTasks++
+			vitals.longTaskMs += entry.duration
+		}
+	})
+}
+
+/**
+ * WebVitalsCollector
+ * Collects one snapshot per top-level navigation in a context and checks
+ * them against the per-URL budgets in data/webVitalsBudgets.json.
+ */
+export class WebVitalsCollector {
+	private readonly navigations = new Map<number, WebVitalsSnapshot>()
+
+	async attach(context: BrowserContext) {
+		await context.exposeBinding('__reportWebVitals', (_source, snapshot: WebVitalsSnapshot) => {
+			this.navigations.set(snapshot.timeOrigin, snapshot)
+		})
+		await context.addInitScript(observeWebVitals)
+	}
+
+	/** Forgets every snapshot so far, e.g. before a pooled tab is handed to the next test. */
+	clear() {
+		this.navigations.clear()
+	}
+
+	snapshots(): WebVitalsSnapshot[] {
+		return [...this.navigations.values()]
+	}
+
+	/** Human-readable budget violations, one per metric over budget. */
+	violations(budgets: Record<string, WebVitalsBudget> = WEB_VITALS_BUDGETS): string[] {
+		const violations: string[] = []
+		for (const snapshot of this.snapshots()) {
+			const budget = { ...budgets.default, ...budgets[snapshot.url] }
+			for (const [metric, limit] of Object.entries(budget)) {
+				const value = snapshot[metric as keyof WebVitalsBudget]
+				if (value !== undefined && limit !== undefined && value > limit) {
+					violations.push(`${snapshot.url}: ${metric} ${Math.round(value * 1000) / 1000} > ${limit}`)
+				}
+			}
+		}
+		return violations
+	}
+}